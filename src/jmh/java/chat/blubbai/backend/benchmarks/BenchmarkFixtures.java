@@ -0,0 +1,46 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.enums.Method2FA;
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.EcKeyRing;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import chat.blubbai.backend.utils.TokenDenylist;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shared setup of the benchmarks, without a Spring context or database.
+ */
+final class BenchmarkFixtures {
+
+    static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtKeyRing keyRing() {
+        return new JwtKeyRing(Map.of(JwtKeyRing.DEFAULT_KID, SECRET), JwtKeyRing.DEFAULT_KID);
+    }
+
+    static TokenService tokenService(JwtKeyRing keyRing, VerifiedTokenCache tokenCache) {
+        return new TokenService(keyRing, new EcKeyRing(false, Duration.ofDays(1), Duration.ofHours(1)), new FastTokenVerifier(keyRing), tokenCache, null, new TokenDenylist(), Runnable::run);
+    }
+
+    /**
+     * @return a user that passes the TwoFactorAuthFilter (mail verified, 2FA method set)
+     */
+    static User user() {
+        User user = new User();
+        user.setUsername("benchmark");
+        user.setUUID(UUID.randomUUID());
+        user.setEmail("benchmark@blubbai.chat");
+        user.setSecretMethod(Method2FA.AUTHENTICATOR);
+        user.setMailVerified(true);
+        return user;
+    }
+}
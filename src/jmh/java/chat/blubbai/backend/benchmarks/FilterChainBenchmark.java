@@ -0,0 +1,52 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.filter.JwtRequestFilter;
+import chat.blubbai.backend.filter.TwoFactorAuthFilter;
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import jakarta.servlet.http.HttpServlet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtRequestFilter followed by the TwoFactorAuthFilter for an authenticated request on mock servlet objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterChainBenchmark {
+
+    private final HttpServlet servlet = new HttpServlet() {
+    };
+
+    private JwtRequestFilter jwtRequestFilter;
+    private TwoFactorAuthFilter twoFactorAuthFilter;
+    private String authHeader;
+
+    @Setup
+    public void setUp() {
+        TokenService tokenService = BenchmarkFixtures.tokenService(BenchmarkFixtures.keyRing(), new VerifiedTokenCache());
+        jwtRequestFilter = new JwtRequestFilter(tokenService);
+        twoFactorAuthFilter = new TwoFactorAuthFilter();
+        authHeader = "Bearer " + tokenService.generateAccessToken(BenchmarkFixtures.user(), true).getToken();
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public int authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/user");
+        request.addHeader("Authorization", authHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(servlet, jwtRequestFilter, twoFactorAuthFilter).doFilter(request, response);
+        return response.getStatus();
+    }
+}
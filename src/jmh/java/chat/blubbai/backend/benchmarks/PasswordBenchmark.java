@@ -0,0 +1,41 @@
+package chat.blubbai.backend.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password verification with the settings the PasswordEncoder can choose:
+ * BCrypt at different cost factors and Argon2id with the Spring Security defaults.
+ * The benchmark runs single-threaded, so the score is the number of hashes per second per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Threads(1)
+public class PasswordBenchmark {
+
+    @Param({"bcrypt-10", "bcrypt-11", "bcrypt-12", "bcrypt-13", "argon2id"})
+    public String setting;
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = setting.equals("argon2id")
+                ? Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8()
+                : new BCryptPasswordEncoder(Integer.parseInt(setting.substring("bcrypt-".length())));
+        hash = encoder.encode("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("correct horse battery staple", hash);
+    }
+}
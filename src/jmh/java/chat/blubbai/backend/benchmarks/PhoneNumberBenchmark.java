@@ -0,0 +1,27 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.model.PhoneNumber;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * E.164 formatting of a phone number, which resolves the country calling code via libphonenumber.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhoneNumberBenchmark {
+
+    private PhoneNumber phoneNumber;
+
+    @Setup
+    public void setUp() {
+        phoneNumber = new PhoneNumber(null, "DE", "16821234567");
+    }
+
+    @Benchmark
+    public String getFullNumber() {
+        return phoneNumber.getFullNumber();
+    }
+}
@@ -0,0 +1,67 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.RefreshToken;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token hot paths of the TokenService: issuing and validating tokens.
+ * Renewal additionally needs the database (see RefreshTokenService), only its signature check is measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenBenchmark {
+
+    private TokenService tokenService;
+    private VerifiedTokenCache tokenCache;
+    private User user;
+    private AccessTokenDTO accessToken;
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        tokenCache = new VerifiedTokenCache();
+        tokenService = BenchmarkFixtures.tokenService(BenchmarkFixtures.keyRing(), tokenCache);
+        user = BenchmarkFixtures.user();
+        accessToken = tokenService.generateAccessToken(user, true);
+        refreshToken = tokenService.generateRefreshToken(user).getToken();
+    }
+
+    @Benchmark
+    public AccessTokenDTO generateAccessToken() {
+        return tokenService.generateAccessToken(user, true);
+    }
+
+    @Benchmark
+    public RefreshToken generateRefreshToken() {
+        return tokenService.generateRefreshToken(user);
+    }
+
+    /**
+     * Repeated validation of the same token, served by the verified-token cache.
+     */
+    @Benchmark
+    public boolean validateToken() {
+        return tokenService.validateToken(accessToken);
+    }
+
+    /**
+     * First validation of a token: digest, signature check and claim decoding.
+     */
+    @Benchmark
+    public boolean validateTokenCacheMiss() {
+        tokenCache.invalidateAll();
+        return tokenService.validateToken(accessToken);
+    }
+
+    @Benchmark
+    public boolean verifyRefreshToken() {
+        return tokenService.verifyRefreshToken(refreshToken);
+    }
+}
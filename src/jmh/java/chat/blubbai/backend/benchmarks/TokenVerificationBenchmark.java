@@ -0,0 +1,63 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the verification of one access token by
+ * <ul>
+ *     <li>the former TokenUtility.validateToken (new key and parser per call),</li>
+ *     <li>the shared jjwt parser of the TokenService,</li>
+ *     <li>the FastTokenVerifier.</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh}; the gc profiler reports the allocations per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenVerificationBenchmark {
+
+    private String token;
+    private JwtParser sharedParser;
+    private FastTokenVerifier fastVerifier;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = BenchmarkFixtures.keyRing();
+        fastVerifier = new FastTokenVerifier(keyRing);
+        sharedParser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+        token = BenchmarkFixtures.tokenService(keyRing, new VerifiedTokenCache())
+                .generateAccessToken(BenchmarkFixtures.user(), true)
+                .getToken();
+    }
+
+    @Benchmark
+    public boolean legacyValidateToken() {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(BenchmarkFixtures.SECRET.getBytes(StandardCharsets.UTF_8))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return claims.getExpiration().after(new Date());
+    }
+
+    @Benchmark
+    public Claims sharedJjwtParser() {
+        return sharedParser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public TokenClaims fastVerifier() {
+        return fastVerifier.verify(token);
+    }
+}
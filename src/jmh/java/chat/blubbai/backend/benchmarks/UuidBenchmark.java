@@ -0,0 +1,41 @@
+package chat.blubbai.backend.benchmarks;
+
+import chat.blubbai.backend.utils.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key generation of random UUIDv4 (SecureRandom) against the lock-free UuidV7,
+ * single-threaded and with 4 threads contending on the shared counter.
+ * The effect on the database (insert rate and index size at 10M rows) is measured by
+ * src/jmh/resources/uuid-index-benchmark.sql.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UuidBenchmark {
+
+    @Benchmark
+    public UUID randomV4() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UUID v7() {
+        return UuidV7.generate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID randomV4Contended() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID v7Contended() {
+        return UuidV7.generate();
+    }
+}
@@ -0,0 +1,40 @@
+-- Insert rate and primary key index size of random UUIDv4 against time-ordered UUIDv7 keys at 10M rows.
+-- Run against a scratch database: psql -d <scratch db> -f src/jmh/resources/uuid-index-benchmark.sql
+-- The rows are inserted in batches of 100k, like a growing message table, so checkpoints and page splits take effect.
+
+\timing on
+
+-- UUIDv7 with the layout of UuidV7 (millisecond time in the first 48 bits, version 7, random rest)
+create or replace function pg_temp.uuid_v7() returns uuid as $$
+    select encode(set_bit(set_bit(overlay(uuid_send(gen_random_uuid())
+            placing substring(int8send(floor(extract(epoch from clock_timestamp()) * 1000)::bigint) from 3)
+            from 1 for 6), 52, 1), 53, 1), 'hex')::uuid;
+$$ language sql volatile;
+
+drop table if exists uuid_v4_bench, uuid_v7_bench;
+create table uuid_v4_bench (id uuid primary key, send_date timestamptz not null default now(), content varchar(255));
+create table uuid_v7_bench (id uuid primary key, send_date timestamptz not null default now(), content varchar(255));
+
+\echo 'UUIDv4: 100 batches of 100k rows'
+do $$
+begin
+    for i in 1..100 loop
+        insert into uuid_v4_bench (id, content) select gen_random_uuid(), 'message' from generate_series(1, 100000);
+        commit;
+    end loop;
+end $$;
+
+\echo 'UUIDv7: 100 batches of 100k rows'
+do $$
+begin
+    for i in 1..100 loop
+        insert into uuid_v7_bench (id, content) select pg_temp.uuid_v7(), 'message' from generate_series(1, 100000);
+        commit;
+    end loop;
+end $$;
+
+select relname as index, pg_size_pretty(pg_relation_size(indexrelid)) as size
+from pg_stat_user_indexes
+where relname in ('uuid_v4_bench', 'uuid_v7_bench');
+
+drop table uuid_v4_bench, uuid_v7_bench;
@@ -0,0 +1,35 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.model.MessageDTO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * AiProvider
+ * <p>
+ * Generates the AI reply of a chat. Called on a virtual thread per reply, so implementations may block.
+ * Selected by AI_PROVIDER (see AiConfig).
+ */
+public interface AiProvider {
+
+    /**
+     * Generates the reply to the history and blocks until it is complete.
+     *
+     * @param history messages of the chat in chronological order, the last one is the user message to answer
+     * @param onToken called with every generated text fragment in order; throws an unchecked exception if the client is gone,
+     *                which must abort the generation
+     * @throws InterruptedException if the thread was interrupted (client disconnected or timeout);
+     *                              the upstream generation must be stopped
+     * @throws IOException          if the upstream generation failed
+     */
+    void generate(List<MessageDTO> history, Consumer<String> onToken) throws InterruptedException, IOException;
+
+    /**
+     * @return identifies the model and its settings that determine the reply, part of the response cache key
+     */
+    default String getModelId() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,35 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.model.MessageDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * BatchAiProvider
+ * <p>
+ * An AiProvider that can also generate several replies in one upstream call, so its replies can be micro-batched
+ * (see BatchingAiProvider).
+ */
+public interface BatchAiProvider extends AiProvider {
+
+    /**
+     * Generates the replies to several histories in one upstream call and blocks until all of them are complete.
+     *
+     * @param histories one history per reply, see {@link #generate}
+     * @param listener  receives the tokens of the replies by their index in histories; called from one thread
+     * @throws InterruptedException if the thread was interrupted; the upstream generation must be stopped
+     * @throws IOException          if the upstream generation failed
+     */
+    void generateBatch(List<List<MessageDTO>> histories, BatchListener listener) throws InterruptedException, IOException;
+
+    /**
+     * Receives the interleaved results of a batch.
+     */
+    interface BatchListener {
+
+        void onToken(int index, String token);
+
+        void onComplete(int index);
+    }
+}
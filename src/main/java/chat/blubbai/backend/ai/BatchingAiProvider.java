@@ -0,0 +1,254 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.model.MessageDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * BatchingAiProvider
+ * <p>
+ * Gathers the concurrent replies of all users into micro-batches and generates every batch with one upstream call,
+ * because model servers decode a batch of prompts in about the time of one (AI_BATCH_MAX_SIZE &gt; 1).
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>A batch is sent when it holds AI_BATCH_MAX_SIZE replies or its oldest reply waited AI_BATCH_MAX_WAIT_MS (default 10),
+ *     whichever comes first. A reply never waits longer than that for a batch to fill up.</li>
+ *     <li>Collecting the next batch continues while the previous ones are generated, each batch on its own virtual thread.</li>
+ *     <li>The interleaved tokens are handed back to the thread of each reply, so a slow or disconnected client
+ *     only affects its own reply. Tokens of a reply whose client is gone are dropped; the batch is only cancelled
+ *     upstream when all its clients are gone.</li>
+ *     <li>Metrics: "ai.batch.size" (replies per upstream call), "ai.batch.queue.wait" (time until the batch was sent)
+ *     and "ai.batch.queue.size" (replies waiting for a batch).</li>
+ * </ul>
+ */
+public class BatchingAiProvider implements AiProvider, AutoCloseable {
+
+    private final BatchAiProvider delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService batchExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-batch-", 0).factory());
+    private final Thread collector;
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+    private volatile boolean closed;
+
+    /**
+     * Starts collecting batches.
+     *
+     * @param delegate     provider that generates the batches
+     * @param maxBatchSize replies per batch
+     * @param maxWait      maximum wait of a reply for its batch
+     * @param registry     registry of the batch metrics
+     */
+    public BatchingAiProvider(BatchAiProvider delegate, int maxBatchSize, Duration maxWait, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchSize = DistributionSummary.builder("ai.batch.size")
+                .description("Replies per upstream AI call")
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) maxBatchSize)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.queueWait = Timer.builder("ai.batch.queue.wait")
+                .description("Time a reply waited until its batch was sent")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("ai.batch.queue.size", queue, BlockingQueue::size)
+                .description("Replies waiting for a batch")
+                .register(registry);
+        this.collector = Thread.ofPlatform().daemon().name("ai-batch-collector").start(this::collect);
+    }
+
+    @Override
+    public String getModelId() {
+        return delegate.getModelId();
+    }
+
+    /**
+     * Queues the reply for the next batch and forwards its tokens on the calling thread until it is complete.
+     */
+    @Override
+    public void generate(List<MessageDTO> history, Consumer<String> onToken) throws InterruptedException, IOException {
+        if (closed) throw new IOException("AI provider is closed");
+        Pending pending = new Pending(history);
+        queue.add(pending);
+        try {
+            while (true) {
+                Signal signal = pending.signals.take(); // interruptible
+                if (signal.error() != null) {
+                    throw signal.error() instanceof IOException io ? io : new IOException("AI batch failed", signal.error());
+                }
+                if (signal.token() == null) return;
+                onToken.accept(signal.token());
+            }
+        } finally {
+            pending.finish(null, true); // no-op if the batch completed the reply
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        collector.interrupt();
+        batchExecutor.shutdownNow();
+        for (Pending pending : queue) pending.finish(Signal.failed(new IOException("AI provider is closed")), false);
+        if (delegate instanceof AutoCloseable closeable) closeable.close();
+    }
+
+    /**
+     * Takes the oldest waiting reply and adds further replies until the batch is full or the oldest one waited long enough.
+     */
+    private void collect() {
+        while (!closed) {
+            try {
+                Pending first = queue.take();
+                List<Pending> batch = new ArrayList<>(maxBatchSize);
+                if (!first.isFinished()) batch.add(first);
+                long deadline = first.enqueuedNanos + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    if (!next.isFinished()) batch.add(next); // client gone while waiting
+                }
+                if (!batch.isEmpty()) dispatch(batch);
+            } catch (InterruptedException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void dispatch(List<Pending> items) {
+        long now = System.nanoTime();
+        batchSize.record(items.size());
+        for (Pending item : items) queueWait.record(now - item.enqueuedNanos, TimeUnit.NANOSECONDS);
+
+        Batch batch = new Batch(items);
+        for (Pending item : items) item.join(batch);
+        batchExecutor.execute(batch.task);
+    }
+
+    /**
+     * Generates one batch and routes its tokens to the replies.
+     */
+    private void runBatch(List<Pending> items) {
+        List<List<MessageDTO>> histories = new ArrayList<>(items.size());
+        for (Pending item : items) histories.add(item.history);
+        try {
+            delegate.generateBatch(histories, new BatchAiProvider.BatchListener() {
+                @Override
+                public void onToken(int index, String token) {
+                    items.get(index).offer(token);
+                }
+
+                @Override
+                public void onComplete(int index) {
+                    items.get(index).finish(Signal.END, false);
+                }
+            });
+            for (Pending item : items) item.finish(Signal.END, false);
+        } catch (InterruptedException e) {
+            for (Pending item : items) item.finish(Signal.failed(new IOException("AI batch cancelled")), false);
+        } catch (Exception e) {
+            for (Pending item : items) item.finish(Signal.failed(e), false);
+        }
+    }
+
+    /**
+     * A token, the end of a reply (token and error null) or a failure.
+     */
+    private record Signal(String token, Throwable error) {
+        static final Signal END = new Signal(null, null);
+
+        static Signal failed(Throwable error) {
+            return new Signal(null, error);
+        }
+    }
+
+    /**
+     * How a reply ended, published in one step so a concurrent join never sees it ended without knowing how.
+     */
+    private enum State {
+        OPEN, COMPLETED, CANCELLED
+    }
+
+    /**
+     * A reply waiting for or being generated in a batch.
+     */
+    private static final class Pending {
+        final List<MessageDTO> history;
+        final long enqueuedNanos = System.nanoTime();
+        final BlockingQueue<Signal> signals = new LinkedBlockingQueue<>();
+        final AtomicReference<State> state = new AtomicReference<>(State.OPEN);
+        final AtomicBoolean left = new AtomicBoolean();
+        volatile Batch batch;
+
+        Pending(List<MessageDTO> history) {
+            this.history = history;
+        }
+
+        boolean isFinished() {
+            return state.get() != State.OPEN;
+        }
+
+        void offer(String token) {
+            if (!isFinished()) signals.add(new Signal(token, null));
+        }
+
+        /**
+         * Ends the reply once, either by the batch (with a last signal) or by its client (cancelled).
+         */
+        void finish(Signal last, boolean byClient) {
+            if (!state.compareAndSet(State.OPEN, byClient ? State.CANCELLED : State.COMPLETED)) return;
+            if (last != null) signals.add(last);
+            leave();
+        }
+
+        void join(Batch batch) {
+            this.batch = batch;
+            if (isFinished()) leave(); // client gone between collecting and joining
+        }
+
+        private void leave() {
+            Batch current = batch;
+            if (current != null && left.compareAndSet(false, true)) current.leave(state.get() == State.CANCELLED);
+        }
+    }
+
+    /**
+     * The replies of one upstream call; the call is cancelled when the clients of all its replies are gone.
+     */
+    private final class Batch {
+        final FutureTask<Void> task;
+        final AtomicInteger open;
+
+        Batch(List<Pending> items) {
+            this.open = new AtomicInteger(items.size());
+            this.task = new FutureTask<>(() -> runBatch(items), null);
+        }
+
+        void leave(boolean byClient) {
+            if (open.decrementAndGet() == 0 && byClient) task.cancel(true); // the last reply was abandoned, not completed
+        }
+    }
+}
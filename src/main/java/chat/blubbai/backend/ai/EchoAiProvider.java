@@ -0,0 +1,40 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.model.MessageDTO;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * EchoAiProvider
+ * <p>
+ * Replies with the last message, word by word with a delay per word, like a model that streams tokens.
+ * For development and load tests without an AI backend (AI_PROVIDER=echo).
+ */
+public class EchoAiProvider implements AiProvider {
+
+    private final Duration delay;
+
+    /**
+     * @param delay pause before every word (AI_ECHO_DELAY_MS)
+     */
+    public EchoAiProvider(Duration delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public String getModelId() {
+        return "echo";
+    }
+
+    @Override
+    public void generate(List<MessageDTO> history, Consumer<String> onToken) throws InterruptedException {
+        String last = history.isEmpty() ? "" : history.get(history.size() - 1).getContent();
+        String[] words = ("Echo: " + last).split(" ");
+        for (int i = 0; i < words.length; i++) {
+            Thread.sleep(delay); // interrupted when the client disconnects
+            onToken.accept(i == 0 ? words[i] : " " + words[i]);
+        }
+    }
+}
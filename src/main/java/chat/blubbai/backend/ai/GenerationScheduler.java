@@ -0,0 +1,298 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.utils.EnvProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * GenerationScheduler
+ * <p>
+ * Admits the AI generations of all users fairly when the upstream capacity is saturated,
+ * so one user sending many prompts can not starve the others.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>At most AI_MAX_CONCURRENT (default 32) generations run at the same time; the others wait in one FIFO queue per user.</li>
+ *     <li>Free slots are granted by deficit round robin over the users with waiting generations: every visit adds
+ *     the weight of the user to their deficit and every generation costs 1, so per round a user starts as many generations
+ *     as their weight. A user with one prompt waits at most one round, however many prompts others have queued.</li>
+ *     <li>The weight comes from the role of the user (AI_ROLE_WEIGHTS, e.g. "admin=4,premium=2"; AI_DEFAULT_WEIGHT, default 1).</li>
+ *     <li>A user can have at most AI_QUEUE_MAX_PER_USER (default 10) waiting generations; further ones are rejected.</li>
+ *     <li>Waiting generations receive their position (1 = next) whenever it changes, on their own thread.</li>
+ * </ul>
+ * The scheduler is held per instance.
+ */
+@Component
+public class GenerationScheduler {
+
+    private static final int GRANTED = 0;
+
+    private final int maxConcurrent;
+    private final int maxQueuedPerUser;
+    private final int defaultWeight;
+    private final Map<String, Integer> roleWeights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<UUID, UserQueue> queues = new HashMap<>();
+    private final ArrayDeque<UserQueue> ring = new ArrayDeque<>();
+    private int running;
+    private int waiting;
+
+    public GenerationScheduler() {
+        this(Integer.parseInt(EnvProvider.getEnvOrDefault("AI_MAX_CONCURRENT", "32")),
+                Integer.parseInt(EnvProvider.getEnvOrDefault("AI_QUEUE_MAX_PER_USER", "10")),
+                Integer.parseInt(EnvProvider.getEnvOrDefault("AI_DEFAULT_WEIGHT", "1")),
+                parseWeights(EnvProvider.getEnvOrDefault("AI_ROLE_WEIGHTS", "")));
+    }
+
+    /**
+     * Creates a scheduler with the given settings, e.g. for tests.
+     *
+     * @param maxConcurrent    generations running at the same time
+     * @param maxQueuedPerUser waiting generations per user
+     * @param defaultWeight    weight of users without a configured role
+     * @param roleWeights      weight per role name (case-insensitive)
+     */
+    public GenerationScheduler(int maxConcurrent, int maxQueuedPerUser, int defaultWeight, Map<String, Integer> roleWeights) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.defaultWeight = Math.max(1, defaultWeight);
+        this.roleWeights = new HashMap<>();
+        roleWeights.forEach((role, weight) -> this.roleWeights.put(role.toLowerCase(Locale.ROOT), Math.max(1, weight)));
+    }
+
+    /**
+     * @param role role name of the user or null
+     * @return scheduling weight of the role
+     */
+    public int weightOf(String role) {
+        return role == null ? defaultWeight : roleWeights.getOrDefault(role.toLowerCase(Locale.ROOT), defaultWeight);
+    }
+
+    /**
+     * Queues a generation of the user. The ticket must be closed when the generation ends or is abandoned.
+     *
+     * @param uId    User ID
+     * @param weight scheduling weight of the user, see {@link #weightOf}
+     * @return the ticket or null if the user already has the maximum of waiting generations
+     */
+    public Ticket enqueue(UUID uId, int weight) {
+        Ticket ticket = new Ticket(uId);
+        lock.lock();
+        try {
+            UserQueue queue = queues.computeIfAbsent(uId, UserQueue::new);
+            if (queue.waiting.size() >= maxQueuedPerUser) {
+                if (queue.waiting.isEmpty()) queues.remove(uId);
+                return null;
+            }
+            queue.weight = Math.max(1, weight);
+            queue.waiting.add(ticket);
+            waiting++;
+            if (queue.waiting.size() == 1) ring.addLast(queue);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+        return ticket;
+    }
+
+    /**
+     * @return number of running generations
+     */
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of waiting generations
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grants free slots by deficit round robin and publishes the new positions. Called with the lock held.
+     */
+    private void dispatch() {
+        boolean granted = false;
+        while (running < maxConcurrent) {
+            Ticket next = pollNext();
+            if (next == null) break;
+            running++;
+            next.state = Ticket.State.RUNNING;
+            next.signals.add(GRANTED);
+            granted = true;
+        }
+        if (granted || waiting > 0) publishPositions();
+    }
+
+    /**
+     * Takes the next ticket in deficit round robin order. Called with the lock held.
+     */
+    private Ticket pollNext() {
+        while (!ring.isEmpty()) {
+            UserQueue queue = ring.peekFirst();
+            if (!queue.visiting) {
+                queue.deficit += queue.weight;
+                queue.visiting = true;
+            }
+            if (queue.deficit >= 1 && !queue.waiting.isEmpty()) {
+                queue.deficit--;
+                Ticket ticket = queue.waiting.pollFirst();
+                waiting--;
+                if (queue.waiting.isEmpty()) leaveRing(queue);
+                return ticket;
+            }
+            ring.pollFirst(); // quantum used up, next user
+            queue.visiting = false;
+            ring.addLast(queue);
+        }
+        return null;
+    }
+
+    private void leaveRing(UserQueue queue) {
+        ring.remove(queue);
+        queue.deficit = 0; // an idle user does not save up credit
+        queue.visiting = false;
+        queues.remove(queue.uId);
+    }
+
+    /**
+     * Replays the round robin on the waiting tickets and signals every ticket whose position changed.
+     * O(waiting tickets), which is bounded by AI_QUEUE_MAX_PER_USER per user. Called with the lock held.
+     */
+    private void publishPositions() {
+        List<UserQueue> users = new ArrayList<>(ring);
+        int[] deficits = new int[users.size()];
+        boolean[] visiting = new boolean[users.size()];
+        List<Iterator<Ticket>> tickets = new ArrayList<>(users.size());
+        ArrayDeque<Integer> order = new ArrayDeque<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserQueue queue = users.get(i);
+            deficits[i] = queue.deficit;
+            visiting[i] = queue.visiting;
+            tickets.add(queue.waiting.iterator());
+            order.add(i);
+        }
+        int position = 0;
+        while (!order.isEmpty()) {
+            int i = order.peekFirst();
+            if (!visiting[i]) {
+                deficits[i] += users.get(i).weight;
+                visiting[i] = true;
+            }
+            if (deficits[i] >= 1 && tickets.get(i).hasNext()) {
+                deficits[i]--;
+                tickets.get(i).next().moveTo(++position);
+                if (!tickets.get(i).hasNext()) order.pollFirst();
+                continue;
+            }
+            order.pollFirst();
+            visiting[i] = false;
+            order.addLast(i);
+        }
+    }
+
+    /**
+     * Leaves the queue or frees the slot of a ticket.
+     */
+    private void close(Ticket ticket) {
+        lock.lock();
+        try {
+            if (ticket.state == Ticket.State.WAITING) {
+                UserQueue queue = queues.get(ticket.uId);
+                if (queue != null && queue.waiting.remove(ticket)) {
+                    waiting--;
+                    if (queue.waiting.isEmpty()) leaveRing(queue);
+                }
+            } else if (ticket.state == Ticket.State.RUNNING) {
+                running--;
+            }
+            ticket.state = Ticket.State.CLOSED;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : weights.split(",")) {
+            String[] roleWeight = entry.split("=");
+            if (roleWeight.length == 2) parsed.put(roleWeight[0].trim(), Integer.parseInt(roleWeight[1].trim()));
+        }
+        return parsed;
+    }
+
+    private static final class UserQueue {
+        final UUID uId;
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        int weight = 1;
+        int deficit;
+        boolean visiting;
+
+        UserQueue(UUID uId) {
+            this.uId = uId;
+        }
+    }
+
+    /**
+     * A queued generation. Waits for its slot with {@link #await} and frees it with {@link #close}.
+     */
+    public final class Ticket implements AutoCloseable {
+
+        private enum State {WAITING, RUNNING, CLOSED}
+
+        private final UUID uId;
+        private final BlockingQueue<Integer> signals = new LinkedBlockingQueue<>(); // positions, GRANTED
+        private State state = State.WAITING; // guarded by the scheduler lock
+        private int position;
+
+        private Ticket(UUID uId) {
+            this.uId = uId;
+        }
+
+        /**
+         * Blocks until the generation may start.
+         *
+         * @param onPosition called on this thread with the queue position (1 = next) whenever it changes
+         * @throws InterruptedException if the thread was interrupted; the ticket must still be closed
+         */
+        public void await(IntConsumer onPosition) throws InterruptedException {
+            while (true) {
+                int signal = signals.take();
+                if (signal == GRANTED) return;
+                if (signals.isEmpty()) onPosition.accept(signal); // skip positions that are already outdated
+            }
+        }
+
+        /**
+         * Leaves the queue or ends the generation; idempotent.
+         */
+        @Override
+        public void close() {
+            GenerationScheduler.this.close(this);
+        }
+
+        private void moveTo(int position) {
+            if (this.position == position) return;
+            this.position = position;
+            signals.add(position);
+        }
+    }
+}
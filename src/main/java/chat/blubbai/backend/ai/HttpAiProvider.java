@@ -0,0 +1,235 @@
+package chat.blubbai.backend.ai;
+
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.enums.Sender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * HttpAiProvider
+ * <p>
+ * Streams the reply from an AI backend over HTTP (AI_PROVIDER=http).
+ *
+ * <h2>Protocol:</h2>
+ * <ul>
+ *     <li>Request: POST to AI_HTTP_URL with {@code {"messages": [{"role": "user"|"assistant", "content": "..."}], "stream": true}}
+ *     and the header {@code Authorization: Bearer <AI_HTTP_API_KEY>} if a key is set.</li>
+ *     <li>Response: 200 with a {@code text/event-stream} of {@code data: {"token": "..."}} events,
+ *     terminated by {@code data: [DONE]} or the end of the body.</li>
+ *     <li>Batch request: {@code {"batch": [{"messages": [...]}, ...], "stream": true}}, answered with interleaved
+ *     {@code data: {"index": i, "token": "..."}} and {@code data: {"index": i, "done": true}} events.</li>
+ * </ul>
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>One {@link HttpClient} is shared by all replies. It negotiates HTTP/2, which multiplexes the streams over one
+ *     connection per backend, and keeps HTTP/1.1 connections alive in its pool, so no reply pays for a new handshake.</li>
+ *     <li>Every call has a deadline (AI_HTTP_TIMEOUT_MS) for the whole reply, not only for the response headers.</li>
+ *     <li>The body is consumed line by line as it arrives, with one line requested at a time, so a slow client
+ *     slows down the backend instead of buffering the reply.</li>
+ *     <li>The calling thread waits on a queue, so an interrupt (client disconnected) or the deadline
+ *     cancels the exchange at once, which resets the HTTP/2 stream or closes the HTTP/1.1 connection.</li>
+ * </ul>
+ */
+public class HttpAiProvider implements BatchAiProvider, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String DATA = "data:";
+    private static final String DONE = "[DONE]";
+
+    private final HttpClient client;
+    private final URI uri;
+    private final String apiKey;
+    private final Duration timeout;
+
+    /**
+     * @param uri            endpoint of the backend (AI_HTTP_URL)
+     * @param apiKey         bearer token or null (AI_HTTP_API_KEY)
+     * @param timeout        deadline of a whole reply (AI_HTTP_TIMEOUT_MS)
+     * @param connectTimeout deadline of a new connection (AI_HTTP_CONNECT_TIMEOUT_MS)
+     */
+    public HttpAiProvider(URI uri, String apiKey, Duration timeout, Duration connectTimeout) {
+        this.uri = uri;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // falls back to HTTP/1.1 if the backend does not support it
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public void generate(List<MessageDTO> history, Consumer<String> onToken) throws InterruptedException, IOException {
+        stream(MAPPER.writeValueAsBytes(Map.of("messages", messages(history), "stream", true)), event -> {
+            JsonNode token = event.get("token");
+            if (token != null && !token.asText().isEmpty()) onToken.accept(token.asText());
+        });
+    }
+
+    @Override
+    public String getModelId() {
+        return "http:" + uri;
+    }
+
+    @Override
+    public void generateBatch(List<List<MessageDTO>> histories, BatchListener listener) throws InterruptedException, IOException {
+        List<Map<String, Object>> batch = new ArrayList<>(histories.size());
+        for (List<MessageDTO> history : histories) batch.add(Map.of("messages", messages(history)));
+        stream(MAPPER.writeValueAsBytes(Map.of("batch", batch, "stream", true)), event -> {
+            int index = event.path("index").asInt(-1);
+            if (index < 0 || index >= histories.size()) return;
+            JsonNode token = event.get("token");
+            if (token != null && !token.asText().isEmpty()) listener.onToken(index, token.asText());
+            if (event.path("done").asBoolean(false)) listener.onComplete(index);
+        });
+    }
+
+    /**
+     * Posts the body and hands every data event of the response to the consumer until [DONE] or the end of the body.
+     */
+    private void stream(byte[] body, Consumer<JsonNode> onEvent) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        BlockingQueue<Signal> signals = new LinkedBlockingQueue<>();
+        LineSubscriber lines = new LineSubscriber(signals);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (apiKey != null && !apiKey.isBlank()) request.header("Authorization", "Bearer " + apiKey);
+
+        CompletableFuture<HttpResponse<Void>> exchange = client.sendAsync(request.build(), response -> {
+            if (response.statusCode() == 200) return HttpResponse.BodySubscribers.fromLineSubscriber(lines);
+            signals.add(Signal.failed(new IOException("AI backend responded with status " + response.statusCode())));
+            return HttpResponse.BodySubscribers.replacing(null);
+        });
+        exchange.whenComplete((response, e) -> {
+            if (e != null) signals.add(Signal.failed(e)); // connect errors and timeouts before the body
+        });
+
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) throw new HttpTimeoutException("AI reply exceeded " + timeout.toMillis() + " ms");
+                Signal signal = signals.poll(remaining, TimeUnit.NANOSECONDS); // interruptible, unlike a blocking read
+                if (signal == null) continue;
+                if (signal.error() != null) throw asIOException(signal.error());
+                if (signal.line() == null) return; // end of body
+
+                String line = signal.line();
+                if (line.startsWith(DATA)) {
+                    String data = line.substring(DATA.length()).trim();
+                    if (DONE.equals(data)) return;
+                    onEvent.accept(MAPPER.readTree(data));
+                }
+                lines.request(); // comments, blank separators and other fields are skipped
+            }
+        } finally {
+            lines.cancel();
+            exchange.cancel(true); // no-op if the exchange completed
+        }
+    }
+
+    /**
+     * Releases the connections of the shared client.
+     */
+    @Override
+    public void close() {
+        client.shutdownNow();
+    }
+
+    private static List<Map<String, String>> messages(List<MessageDTO> history) {
+        List<Map<String, String>> messages = new ArrayList<>(history.size());
+        for (MessageDTO message : history) {
+            messages.add(Map.of("role", message.getAuthor() == Sender.AI ? "assistant" : "user",
+                    "content", message.getContent() == null ? "" : message.getContent()));
+        }
+        return messages;
+    }
+
+    private static IOException asIOException(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof IOException io ? io : new IOException("AI request failed", cause);
+    }
+
+    /**
+     * A line of the body, the end of the body (line and error null) or a failure.
+     */
+    private record Signal(String line, Throwable error) {
+        static final Signal END = new Signal(null, null);
+
+        static Signal failed(Throwable error) {
+            return new Signal(null, error);
+        }
+    }
+
+    /**
+     * Hands the lines of the body to the generating thread, one line per request.
+     */
+    private static final class LineSubscriber implements Flow.Subscriber<String> {
+        private final BlockingQueue<Signal> signals;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        LineSubscriber(BlockingQueue<Signal> signals) {
+            this.signals = signals;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) subscription.cancel();
+            else subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String line) {
+            signals.add(new Signal(line, null));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(Signal.failed(error));
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(Signal.END);
+        }
+
+        void request() {
+            Flow.Subscription current = subscription;
+            if (current != null) current.request(1);
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) current.cancel();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package chat.blubbai.backend.ai;
+
+import java.time.Duration;
+
+/**
+ * StubAiProvider
+ * <p>
+ * The {@link HttpAiProvider} connected to its own {@link StubAiServer}, so load tests exercise the same HTTP client path
+ * as production (AI_PROVIDER=stub). The server is stopped with the provider.
+ */
+public class StubAiProvider extends HttpAiProvider {
+
+    private final StubAiServer server;
+
+    /**
+     * @param server         running stub server, owned by this provider
+     * @param timeout        deadline of a whole reply
+     * @param connectTimeout deadline of a new connection
+     */
+    public StubAiProvider(StubAiServer server, Duration timeout, Duration connectTimeout) {
+        super(server.getUri(), null, timeout, connectTimeout);
+        this.server = server;
+    }
+
+    @Override
+    public String getModelId() {
+        return "stub:" + server.getTokens();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        server.close();
+    }
+}
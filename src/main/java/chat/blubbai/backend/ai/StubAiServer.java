@@ -0,0 +1,135 @@
+package chat.blubbai.backend.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * StubAiServer
+ * <p>
+ * In-process AI backend that speaks the protocol of the {@link HttpAiProvider}, for load tests of the chat pipeline
+ * without an external service (AI_PROVIDER=stub).
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Listens on the loopback interface only, on AI_STUB_PORT (default 0, a free port).</li>
+ *     <li>Waits AI_STUB_LATENCY_MS (default 200) before the first token, then emits AI_STUB_TOKENS (default 50) tokens
+ *     at AI_STUB_TOKENS_PER_SECOND (default 50, 0 for no delay).</li>
+ *     <li>The reply is deterministic: the words of the last message in a cycle, so identical requests get identical replies.</li>
+ *     <li>A batch request is answered like a batching model server: every step emits one token of each reply,
+ *     so a batch takes as long as a single reply.</li>
+ *     <li>Every request is served on its own virtual thread; a disconnected client ends its reply.</li>
+ * </ul>
+ */
+public class StubAiServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration latency;
+    private final int tokens;
+    private final Duration tokenInterval;
+
+    /**
+     * Starts the server.
+     *
+     * @param port            port or 0 for a free port
+     * @param latency         delay before the first token
+     * @param tokens          number of tokens per reply
+     * @param tokensPerSecond emission rate, 0 for no delay between the tokens
+     * @throws IOException if the port can not be bound
+     */
+    public StubAiServer(int port, Duration latency, int tokens, int tokensPerSecond) throws IOException {
+        this.latency = latency;
+        this.tokens = tokens;
+        this.tokenInterval = tokensPerSecond > 0 ? Duration.ofNanos(1_000_000_000L / tokensPerSecond) : Duration.ZERO;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/v1/generate", this::generate);
+        server.start();
+    }
+
+    /**
+     * @return endpoint to configure as AI_HTTP_URL
+     */
+    public URI getUri() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1/generate");
+    }
+
+    /**
+     * @return number of tokens per reply
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            boolean batch = request.has("batch");
+            List<String[]> replies = new ArrayList<>();
+            if (batch) request.get("batch").forEach(item -> replies.add(words(item)));
+            else replies.add(words(request));
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0); // chunked
+            OutputStream body = exchange.getResponseBody();
+            Thread.sleep(latency);
+            for (int i = 0; i < tokens; i++) {
+                if (i > 0) Thread.sleep(tokenInterval);
+                for (int index = 0; index < replies.size(); index++) {
+                    String[] words = replies.get(index);
+                    String token = (i == 0 ? "" : " ") + words[i % words.length];
+                    event(body, MAPPER.writeValueAsString(batch ? Map.of("index", index, "token", token) : Map.of("token", token)));
+                }
+            }
+            if (batch) {
+                for (int index = 0; index < replies.size(); index++) event(body, MAPPER.writeValueAsString(Map.of("index", index, "done", true)));
+            }
+            event(body, "[DONE]");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // server stopped
+        }
+    }
+
+    /**
+     * @return the words of the last message of the request, or "stub" if it is empty
+     */
+    private static String[] words(JsonNode request) {
+        JsonNode messages = request.path("messages");
+        String last = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("content").asText("");
+        String[] words = last.trim().split("\\s+");
+        return words[0].isEmpty() ? new String[]{"stub"} : words;
+    }
+
+    private static void event(OutputStream body, String data) throws IOException {
+        body.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush(); // one chunk per token, throws if the client is gone
+    }
+}
@@ -0,0 +1,58 @@
+package chat.blubbai.backend.config;
+
+import chat.blubbai.backend.ai.AiProvider;
+import chat.blubbai.backend.ai.BatchAiProvider;
+import chat.blubbai.backend.ai.BatchingAiProvider;
+import chat.blubbai.backend.ai.EchoAiProvider;
+import chat.blubbai.backend.ai.HttpAiProvider;
+import chat.blubbai.backend.ai.StubAiProvider;
+import chat.blubbai.backend.ai.StubAiServer;
+import chat.blubbai.backend.utils.EnvProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * AiConfig
+ * <p>
+ * Selects the AiProvider that generates the AI replies (env AI_PROVIDER):
+ * <ul>
+ *     <li><b>echo</b> (default): echoes the user message word by word, every AI_ECHO_DELAY_MS (default 20).</li>
+ *     <li><b>http</b>: streams the reply from the backend at AI_HTTP_URL (see HttpAiProvider).</li>
+ *     <li><b>stub</b>: streams the reply from an in-process StubAiServer over HTTP, for load tests.</li>
+ * </ul>
+ * The HTTP providers share AI_HTTP_TIMEOUT_MS (default 120000, whole reply) and AI_HTTP_CONNECT_TIMEOUT_MS (default 5000).
+ * With AI_BATCH_MAX_SIZE &gt; 1 (default 1) the replies of a BatchAiProvider (http, stub) are micro-batched,
+ * waiting at most AI_BATCH_MAX_WAIT_MS (default 10) for a batch to fill (see BatchingAiProvider).
+ * The provider is closed on shutdown, which releases its connections (and stops the stub server).
+ */
+@Configuration
+public class AiConfig {
+
+    @Bean
+    public AiProvider aiProvider(MeterRegistry registry) throws IOException {
+        String provider = EnvProvider.getEnvOrDefault("AI_PROVIDER", "echo").toLowerCase(Locale.ROOT);
+        Duration timeout = Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("AI_HTTP_TIMEOUT_MS", "120000")));
+        Duration connectTimeout = Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("AI_HTTP_CONNECT_TIMEOUT_MS", "5000")));
+        AiProvider aiProvider = switch (provider) {
+            case "echo" -> new EchoAiProvider(Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("AI_ECHO_DELAY_MS", "20"))));
+            case "http" -> new HttpAiProvider(URI.create(EnvProvider.getEnv("AI_HTTP_URL")),
+                    EnvProvider.getEnvOrDefault("AI_HTTP_API_KEY", null), timeout, connectTimeout);
+            case "stub" -> new StubAiProvider(new StubAiServer(
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("AI_STUB_PORT", "0")),
+                    Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("AI_STUB_LATENCY_MS", "200"))),
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("AI_STUB_TOKENS", "50")),
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("AI_STUB_TOKENS_PER_SECOND", "50"))), timeout, connectTimeout);
+            default -> throw new IllegalStateException("Unknown AI_PROVIDER: " + provider);
+        };
+        int batchSize = Integer.parseInt(EnvProvider.getEnvOrDefault("AI_BATCH_MAX_SIZE", "1"));
+        if (batchSize <= 1 || !(aiProvider instanceof BatchAiProvider batchAiProvider)) return aiProvider;
+        return new BatchingAiProvider(batchAiProvider, batchSize,
+                Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("AI_BATCH_MAX_WAIT_MS", "10"))), registry);
+    }
+}
@@ -0,0 +1,89 @@
+package chat.blubbai.backend.config;
+
+import chat.blubbai.backend.utils.EnvProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * ExecutorConfig
+ * <p>
+ * Bounded thread pools for CPU-bound work that is split off request threads,
+ * and virtual threads for long-running I/O-bound work.
+ * Spring Boot publishes every pool as "executor.*" metrics tagged with its bean name.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String TOKEN_VERIFICATION_EXECUTOR = "tokenVerificationExecutor";
+    public static final String PASSWORD_HASHING_EXECUTOR = "passwordHashingExecutor";
+    public static final String AI_STREAM_EXECUTOR = "aiStreamExecutor";
+    public static final String AUTH_IO_EXECUTOR = "authIoExecutor";
+
+    /**
+     * Verifies the tokens of batch validation requests in parallel.
+     * One thread per core (env TOKEN_VERIFICATION_THREADS); when the queue (env TOKEN_VERIFICATION_QUEUE, default 1000)
+     * is full, the request thread verifies the token itself, which throttles the callers instead of failing them.
+     *
+     * @return executor for token verification
+     */
+    @Bean(name = TOKEN_VERIFICATION_EXECUTOR)
+    public ThreadPoolTaskExecutor tokenVerificationExecutor() {
+        int threads = Integer.parseInt(EnvProvider.getEnvOrDefault("TOKEN_VERIFICATION_THREADS",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(Integer.parseInt(EnvProvider.getEnvOrDefault("TOKEN_VERIFICATION_QUEUE", "1000")));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("token-verify-");
+        return executor;
+    }
+
+    /**
+     * Runs the BCrypt checks of the logins, so a login burst cannot occupy the request threads.
+     * One thread per core (env PASSWORD_HASHING_THREADS) and a short queue (env PASSWORD_HASHING_QUEUE, default 64);
+     * when the queue is full, the task is rejected and the login answers 503 at once.
+     * The queue depth is published as "executor.queued{name=passwordHashingExecutor}".
+     *
+     * @return executor for password hashing
+     */
+    @Bean(name = PASSWORD_HASHING_EXECUTOR)
+    public ThreadPoolTaskExecutor passwordHashingExecutor() {
+        int threads = Integer.parseInt(EnvProvider.getEnvOrDefault("PASSWORD_HASHING_THREADS",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(Integer.parseInt(EnvProvider.getEnvOrDefault("PASSWORD_HASHING_QUEUE", "64")));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("password-hash-");
+        return executor;
+    }
+
+    /**
+     * Runs the AI reply streams, one virtual thread per reply. A reply waits on the AI backend most of the time,
+     * so thousands of concurrent generations cost no platform thread each. Cancelling a task interrupts its thread.
+     *
+     * @return executor for AI reply streams
+     */
+    @Bean(name = AI_STREAM_EXECUTOR, destroyMethod = "close")
+    public ExecutorService aiStreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-stream-", 0).factory());
+    }
+
+    /**
+     * Continues a login after its password check, one virtual thread per login. Storing a rehashed password, the attempt
+     * bookkeeping and the refresh token insert wait on the database, so they must not hold a thread of the password hashing pool.
+     *
+     * @return executor for the database work of logins
+     */
+    @Bean(name = AUTH_IO_EXECUTOR, destroyMethod = "close")
+    public ExecutorService authIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("auth-io-", 0).factory());
+    }
+}
@@ -0,0 +1,92 @@
+package chat.blubbai.backend.config;
+
+import chat.blubbai.backend.ai.GenerationScheduler;
+import chat.blubbai.backend.service.AiResponseCacheService;
+import chat.blubbai.backend.utils.PrincipalCache;
+import chat.blubbai.backend.utils.TokenDenylist;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MetricsConfig
+ * <p>
+ * Binds application internal caches and executors to the actuator meter registry.
+ * The metrics are available under /actuator/metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Publishes hit, miss, eviction and size metrics of the verified-token cache.
+     *
+     * @param tokenCache the verified-token cache
+     * @return MeterBinder for the verified-token cache
+     */
+    @Bean
+    public MeterBinder verifiedTokenCacheMetrics(VerifiedTokenCache tokenCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, tokenCache.getCache(), VerifiedTokenCache.CACHE_NAME);
+    }
+
+    /**
+     * Publishes hit ratio, load latency, eviction and size metrics of the principal cache.
+     *
+     * @param principalCache the principal cache
+     * @return MeterBinder for the principal cache
+     */
+    @Bean
+    public MeterBinder principalCacheMetrics(PrincipalCache principalCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, principalCache.getCache(), PrincipalCache.CACHE_NAME);
+    }
+
+    /**
+     * Publishes the number of users with revoked access tokens as "token.denylist.size".
+     *
+     * @param denylist the access token denylist
+     * @return MeterBinder for the denylist
+     */
+    @Bean
+    public MeterBinder tokenDenylistMetrics(TokenDenylist denylist) {
+        return registry -> Gauge.builder("token.denylist.size", denylist, TokenDenylist::size)
+                .description("Users whose access tokens are revoked")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the hit ratio of both tiers of the AI response cache as "ai.cache.hit.ratio"
+     * and hit, miss, eviction and size metrics of its memory tier.
+     *
+     * @param responseCache the AI response cache
+     * @return MeterBinder for the AI response cache
+     */
+    @Bean
+    public MeterBinder aiResponseCacheMetrics(AiResponseCacheService responseCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, responseCache.getCache(), AiResponseCacheService.CACHE_NAME);
+            Gauge.builder("ai.cache.hit.ratio", responseCache, AiResponseCacheService::getHitRatio)
+                    .description("Share of AI replies served from the response cache")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Publishes the running and waiting AI generations as "ai.scheduler.running" and "ai.scheduler.waiting".
+     *
+     * @param scheduler the AI generation scheduler
+     * @return MeterBinder for the scheduler
+     */
+    @Bean
+    public MeterBinder generationSchedulerMetrics(GenerationScheduler scheduler) {
+        return registry -> {
+            Gauge.builder("ai.scheduler.running", scheduler, GenerationScheduler::getRunning)
+                    .description("AI generations running")
+                    .register(registry);
+            Gauge.builder("ai.scheduler.waiting", scheduler, GenerationScheduler::getWaiting)
+                    .description("AI generations waiting for a slot")
+                    .register(registry);
+        };
+    }
+}
@@ -3,6 +3,8 @@ package chat.blubbai.backend.config;
 import chat.blubbai.backend.filter.JwtRequestFilter;
 import chat.blubbai.backend.filter.RequestLoggingFilter;
 import chat.blubbai.backend.filter.TwoFactorAuthFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -19,23 +21,36 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class WebSecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtRequestFilter jwtRequestFilter) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorizationManagerRequestMatcherRegistry ->
                         authorizationManagerRequestMatcherRegistry
                                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Allow preflight requests
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // SSE and async responses, the request was authorized before
                                 .requestMatchers( "/error").permitAll()
                                 .requestMatchers("/tools/**").permitAll()
+                                .requestMatchers("/.well-known/jwks.json").permitAll()
                                 .requestMatchers("/api/v1/auth/noa/**").permitAll()
                                 .anyRequest().authenticated())
                 .httpBasic(Customizer.withDefaults())
                 .sessionManagement(httpSecuritySessionManagementConfigurer -> httpSecuritySessionManagementConfigurer.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
         http.addFilterBefore(new RequestLoggingFilter(), UsernamePasswordAuthenticationFilter.class);
-        http.addFilterBefore(new JwtRequestFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterAfter(new TwoFactorAuthFilter(), JwtRequestFilter.class);
 
         return http.build();
     }
 
+    /**
+     * The JwtRequestFilter is a bean so it can use the TokenService,
+     * but it must only run inside the security filter chain and not a second time as servlet filter.
+     */
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration(JwtRequestFilter jwtRequestFilter) {
+        FilterRegistrationBean<JwtRequestFilter> registration = new FilterRegistrationBean<>(jwtRequestFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
 }
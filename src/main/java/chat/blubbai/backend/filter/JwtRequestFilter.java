@@ -1,7 +1,8 @@
 package chat.blubbai.backend.filter;
 
 import chat.blubbai.backend.model.AccessTokenDTO;
-import chat.blubbai.backend.utils.TokenUtility;
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.service.TokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,7 +13,6 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * JwtRequestFilter
@@ -23,7 +23,7 @@ import java.util.Objects;
  * <h2>Behavior:</h2>
  * <ul>
  *     <li>Checks for "Bearer &lt;token&gt;" in the Authorization header.</li>
- *     <li>Validates the token and extracts the username.</li>
+ *     <li>Parses and validates the token once and stores the verified {@link TokenClaims} as request attribute.</li>
  *     <li>Sets the authentication in the SecurityContext if valid.</li>
  *     <li>Does not block the request if the token is missing or invalid (other filters may handle this).</li>
  * </ul>
@@ -31,6 +31,12 @@ import java.util.Objects;
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    private final TokenService tokenService;
+
+    public JwtRequestFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
     /**
      * Intercepts each request to check for a valid JWT access token.
      * If valid, sets the authentication in the SecurityContext.
@@ -47,16 +53,28 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            AccessTokenDTO jwt = new AccessTokenDTO(authHeader.substring(7));
-            if (TokenUtility.validateToken(jwt)) {
-                if (Objects.requireNonNull(TokenUtility.getTokenType(jwt)).equals("access")) {
-                    String username = TokenUtility.getSubject(jwt);
+            TokenClaims claims = tokenService.parseToken(new AccessTokenDTO(authHeader.substring(7)));
+            if (claims != null) {
+                request.setAttribute(TokenClaims.REQUEST_ATTRIBUTE, claims); // parsed once, read by the following filters and controllers
+                if (claims.isAccessToken()) {
                     UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(username, null, List.of());
+                            new UsernamePasswordAuthenticationToken(claims.subject(), null, List.of());
+                    authentication.setDetails(claims);
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Shares the "already filtered" marker between all instances of this filter,
+     * so the token is not parsed a second time if the filter is registered twice.
+     *
+     * @return name of the request attribute marking the request as filtered
+     */
+    @Override
+    protected String getAlreadyFilteredAttributeName() {
+        return JwtRequestFilter.class.getName() + ALREADY_FILTERED_SUFFIX;
+    }
 }
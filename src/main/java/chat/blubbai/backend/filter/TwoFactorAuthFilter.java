@@ -1,8 +1,7 @@
 package chat.blubbai.backend.filter;
 
-import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.TokenClaims;
 import chat.blubbai.backend.model.enums.ErrorResponse;
-import chat.blubbai.backend.utils.TokenUtility;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,7 +18,7 @@ import java.io.IOException;
  * <h2>Behavior:</h2>
  * <ul>
  *     <li>Skips endpoints containing "/no2fa" or "/noa".</li>
- *     <li>Checks for a valid JWT in the Authorization header.</li>
+ *     <li>Checks for a valid JWT in the Authorization header, using the claims verified by the JwtRequestFilter.</li>
  *     <li>If 2FA is required but not completed, responds with 403 Forbidden and a JSON message.</li>
  *     <li>If 2FA method is not set, responds with 400 Bad Request and a JSON message.</li>
  *     <li>Otherwise, allows the request to proceed.</li>
@@ -48,11 +47,11 @@ public class TwoFactorAuthFilter extends OncePerRequestFilter {
         }
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            AccessTokenDTO token = new AccessTokenDTO(authHeader.substring(7));
-            if (TokenUtility.validateToken(token)) {
-                String secretMethod = TokenUtility.getSecretMethod(token);
-                Boolean isMailVerified = TokenUtility.getMailVerified(token);
-                boolean is2FACompleted = Boolean.TRUE.equals(TokenUtility.get2FACompleted(token));
+            TokenClaims claims = (TokenClaims) request.getAttribute(TokenClaims.REQUEST_ATTRIBUTE); // verified by JwtRequestFilter
+            if (claims != null) {
+                String secretMethod = claims.secretMethod();
+                Boolean isMailVerified = claims.mailVerified();
+                boolean is2FACompleted = Boolean.TRUE.equals(claims.twoFactorCompleted());
                 if (Boolean.FALSE.equals(isMailVerified)) {
                     response.setStatus(HttpServletResponse.SC_FORBIDDEN);
                     response.setContentType("application/json");
@@ -0,0 +1,31 @@
+package chat.blubbai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Cached AI reply, keyed by the hex SHA-256 of its normalised context window, model and parameters.
+ * The shared tier of the AiResponseCacheService; the indexes are created by the migrations (db/migration).
+ */
+@Entity(name = "ai_response")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiResponse {
+
+    @Id
+    @Column(nullable = false, updatable = false, length = 64)
+    private String keyHash;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false, updatable = false)
+    private Instant created;
+}
@@ -1,5 +1,6 @@
 package chat.blubbai.backend.model;
 
+import chat.blubbai.backend.utils.UuidV7;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -26,18 +27,27 @@ public class Chat {
     private String description;
     @Column(nullable = false, updatable = false)
     private Instant created;
+    /**
+     * Whether AI replies in this chat may be answered from and stored in the AI response cache.
+     */
+    @Column(nullable = false)
+    private boolean responseCache = true;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JsonIgnore
     @JoinColumn(name = "UUID", referencedColumnName = "UUID")
     private User user;
 
+    /**
+     * Only for cascading new messages. Never read it, it loads the whole history; use the MessageService instead.
+     */
+    @JsonIgnore
     @OneToMany(mappedBy = "chat", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Message> messages;
 
     @PrePersist
     private void prePersist() {
-        this.cId = UUID.randomUUID();
+        this.cId = UuidV7.generate();
         this.created = Instant.now();
     }
 }
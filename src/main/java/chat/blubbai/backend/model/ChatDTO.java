@@ -0,0 +1,31 @@
+package chat.blubbai.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Chat as returned by the API, without its messages. Also the request body to create or update a chat
+ * (only title, description and responseCache are read).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ChatDTO {
+    @JsonProperty("cId")
+    private UUID cId;
+    private String title;
+    private String description;
+    private Instant created;
+    private Boolean responseCache;
+
+    public static ChatDTO of(Chat chat) {
+        return new ChatDTO(chat.getCId(), chat.getTitle(), chat.getDescription(), chat.getCreated(), chat.isResponseCache());
+    }
+}
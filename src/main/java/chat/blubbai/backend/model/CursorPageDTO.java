@@ -0,0 +1,26 @@
+package chat.blubbai.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. The next page is requested with nextCursor, which is null on the last page.
+ * Lists that can be paged in both directions (messages) also return previousCursor for the preceding page.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class CursorPageDTO<T> {
+    private List<T> items;
+    private String previousCursor;
+    private String nextCursor;
+
+    public CursorPageDTO(List<T> items, String nextCursor) {
+        this(items, null, nextCursor);
+    }
+}
@@ -0,0 +1,38 @@
+package chat.blubbai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Failed logins of one key (username or client IP) in one minute, used by the Postgres LoginAttemptStore.
+ * The indexes are created by the migrations (db/migration).
+ */
+@Entity(name = "login_attempt")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginAttempt {
+
+    /**
+     * "&lt;attemptKey&gt;|&lt;minute&gt;"
+     */
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String id;
+
+    @Column(nullable = false, updatable = false)
+    private String attemptKey;
+
+    @Column(nullable = false, updatable = false)
+    private long minute;
+
+    @Column(nullable = false)
+    private long failures;
+
+    @Column(nullable = false)
+    private long lastFailureMillis;
+}
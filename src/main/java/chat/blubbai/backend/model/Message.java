@@ -1,6 +1,7 @@
 package chat.blubbai.backend.model;
 
 import chat.blubbai.backend.model.enums.Sender;
+import chat.blubbai.backend.utils.UuidV7;
 import jakarta.persistence.Entity;
 import jakarta.persistence.*;
 import jakarta.persistence.Id;
@@ -23,7 +24,7 @@ public class Message {
     @Column(nullable = false, updatable = false)
     private UUID mId;
 
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
     @Enumerated(EnumType.STRING)
@@ -40,7 +41,7 @@ public class Message {
 
     @PrePersist
     private void prePersist() {
-        this.mId = UUID.randomUUID();
+        this.mId = UuidV7.generate();
         this.sendDate = Instant.now();
     }
 }
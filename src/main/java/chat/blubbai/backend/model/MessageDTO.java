@@ -0,0 +1,30 @@
+package chat.blubbai.backend.model;
+
+import chat.blubbai.backend.model.enums.Sender;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Message as returned by the API, without its chat.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class MessageDTO {
+    @JsonProperty("mId")
+    private UUID mId;
+    private String content;
+    private Sender author;
+    private Instant sendDate;
+
+    public static MessageDTO of(Message message) {
+        return new MessageDTO(message.getMId(), message.getContent(), message.getAuthor(), message.getSendDate());
+    }
+}
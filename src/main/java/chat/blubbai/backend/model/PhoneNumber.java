@@ -17,7 +17,8 @@ public class PhoneNumber {
 
     @JsonIgnore
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "phone_number_seq")
+    @SequenceGenerator(name = "phone_number_seq", sequenceName = "phone_number_seq", allocationSize = 50)
     private Integer pnId;
     private String country;
     private String number;
@@ -1,5 +1,6 @@
 package chat.blubbai.backend.model;
 
+import chat.blubbai.backend.utils.UuidV7;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
@@ -14,6 +15,9 @@ import java.util.UUID;
 @Entity(name = "refresh_tokens")
 public class RefreshToken {
 
+    /**
+     * Also the "jti" claim of the token, so two tokens issued in the same second differ.
+     */
     @Id
     @Column(nullable = false, updatable = false)
     @JsonIgnore
@@ -24,9 +28,31 @@ public class RefreshToken {
     @JoinColumn(name = "UUID", nullable = false, referencedColumnName = "UUID")
     private User user;
 
-    @Column(nullable = false, unique = true, columnDefinition = "TEXT")
+    /**
+     * The compact token, only known right after it was issued. Only its digest is stored.
+     */
+    @Transient
     private String token;
 
+    /**
+     * SHA-256 digest of the token, the unique lookup key (a fixed 32 bytes instead of the whole token in the index).
+     */
+    @JsonIgnore
+    @Column(nullable = false, updatable = false, unique = true, length = 32)
+    private byte[] tokenHash;
+
+    /**
+     * All tokens that were rotated from the same login share one family. If a rotated token is used again,
+     * the whole family is revoked.
+     */
+    @JsonIgnore
+    @Column(nullable = false, updatable = false)
+    private UUID familyId;
+
+    @JsonIgnore
+    @Column(nullable = false, updatable = false)
+    private boolean twoFactorCompleted;
+
     @JsonIgnore
     @Column(nullable = false)
     private Instant expiresAt;
@@ -36,13 +62,13 @@ public class RefreshToken {
     private Instant issuedAt;
 
     @JsonIgnore
-    @Column(nullable = false, updatable = false)
+    @Column(nullable = false)
     private boolean revoked;
 
 
     @PrePersist
     private void prePersist() {
-        this.id = UUID.randomUUID();
+        if (this.id == null) this.id = UuidV7.generate();
         this.issuedAt = Instant.now();
         this.revoked = false;
     }
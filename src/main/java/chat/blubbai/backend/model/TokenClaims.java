@@ -0,0 +1,51 @@
+package chat.blubbai.backend.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * TokenClaims
+ * <p>
+ * Immutable view of the claims of a JWT whose signature has already been verified.
+ * The {@code JwtRequestFilter} creates it once per request and stores it as request attribute
+ * {@link #REQUEST_ATTRIBUTE} and as details of the authentication, so that the following filters
+ * and the controllers can read the claims without parsing the token again.
+ *
+ * @param subject            username of the token owner
+ * @param uId                UUID of the token owner or null if the token carries none
+ * @param tokenType          access, refresh or mail_verification
+ * @param secretMethod       2FA method of the user or null if not set
+ * @param twoFactorCompleted value of the "2fa_completed" claim or null if absent
+ * @param mailVerified       value of the "mail_verified" claim or null if absent
+ * @param issuedAt           issue time of the token
+ * @param expiresAt          expiration time of the token
+ */
+public record TokenClaims(String subject,
+                          UUID uId,
+                          String tokenType,
+                          String secretMethod,
+                          Boolean twoFactorCompleted,
+                          Boolean mailVerified,
+                          Instant issuedAt,
+                          Instant expiresAt) {
+
+    /**
+     * Name of the request attribute holding the verified claims of the current request.
+     */
+    public static final String REQUEST_ATTRIBUTE = TokenClaims.class.getName();
+
+    /**
+     * @return true if this is an access token
+     */
+    public boolean isAccessToken() {
+        return "access".equals(tokenType);
+    }
+
+    /**
+     * @param now the point in time to check against
+     * @return true if the token is expired at the given time
+     */
+    public boolean isExpired(Instant now) {
+        return expiresAt == null || !expiresAt.isAfter(now);
+    }
+}
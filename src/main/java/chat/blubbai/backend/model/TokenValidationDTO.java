@@ -0,0 +1,22 @@
+package chat.blubbai.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Result of one token of a batch validation, claims are null if the token is invalid.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class TokenValidationDTO {
+    private boolean valid;
+    private TokenClaims claims;
+
+    public static TokenValidationDTO of(TokenClaims claims) {
+        return new TokenValidationDTO(claims != null, claims);
+    }
+}
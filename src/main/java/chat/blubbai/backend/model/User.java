@@ -1,6 +1,7 @@
 package chat.blubbai.backend.model;
 
 import chat.blubbai.backend.model.enums.Method2FA;
+import chat.blubbai.backend.utils.UuidV7;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
@@ -48,7 +49,7 @@ public class User {
     @Column(nullable = false)
     private boolean mailVerified = false;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rId", referencedColumnName = "rId")
     private Role role;
 
@@ -62,7 +63,7 @@ public class User {
 
     @PrePersist
     private void prePersist() {
-        this.UUID = UUID.randomUUID();
+        this.UUID = UuidV7.generate();
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
         this.secret = Base32.random();
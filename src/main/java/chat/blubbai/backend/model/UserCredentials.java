@@ -0,0 +1,31 @@
+package chat.blubbai.backend.model;
+
+import chat.blubbai.backend.model.enums.Method2FA;
+
+import java.util.UUID;
+
+/**
+ * Projection of the account columns needed to authenticate (login, token issuing, 2FA).
+ * Loaded in one query without joins; role and phone number are only loaded where the full profile is needed.
+ */
+public interface UserCredentials {
+    UUID getUUID();
+    String getUsername();
+    String getPassword();
+    Method2FA getSecretMethod();
+    boolean isMailVerified();
+    String getSecret();
+
+    /**
+     * @return transient user with the fields needed to issue tokens
+     */
+    default User toUser() {
+        User user = new User();
+        user.setUUID(getUUID());
+        user.setUsername(getUsername());
+        user.setSecretMethod(getSecretMethod());
+        user.setMailVerified(isMailVerified());
+        user.setSecret(getSecret());
+        return user;
+    }
+}
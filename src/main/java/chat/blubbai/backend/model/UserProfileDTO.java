@@ -0,0 +1,31 @@
+package chat.blubbai.backend.model;
+
+import chat.blubbai.backend.model.enums.Method2FA;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Profile of a user as returned by the API. Built from a user whose phone number and role are loaded,
+ * so serializing it never touches a lazy association (open-in-view is disabled). Never contains the password hash.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class UserProfileDTO {
+    private UUID UUID;
+    private String username;
+    private String email;
+    private Method2FA secretMethod;
+    private PhoneNumber phoneNumber;
+    private Role role;
+
+    public static UserProfileDTO of(User user) {
+        return new UserProfileDTO(user.getUUID(), user.getUsername(), user.getEmail(), user.getSecretMethod(),
+                user.getPhoneNumber(), user.getRole());
+    }
+}
@@ -6,7 +6,7 @@ import lombok.Getter;
  * Enum representing various error responses with their corresponding messages.
  * Each enum constant corresponds to a specific error scenario.<p>
  * Error codes are prefixed with a number indicating the category <p>
- * (e.g., 1xxx for user-related errors, 4xxx for authentication errors).
+ * (e.g., 1xxx for user-related errors, 2xxx for chat-related errors, 4xxx for authentication errors, 5xxx for server load).
  */
 @Getter
 public enum ErrorResponse {
@@ -15,13 +15,22 @@ public enum ErrorResponse {
     USERNAME_CONFLICT(1003,"User already exists"),
     BAD_PHONE(1004,"Invalid phone number"),
     BAD_USERNAME(1005,"Invalid username"),
+    CHAT_NOT_FOUND(2001,"Chat not found"),
+    BAD_TITLE(2002,"Invalid chat title"),
+    BAD_CURSOR(2003,"Invalid cursor"),
+    BAD_MESSAGE(2004,"Invalid message"),
     METHOD_NOT_SET(4001,"2FA Method not set"),
     INVALID_PASSWORD(4002,"Invalid password"),
     INVALID_2FA(4003,"2FA Code wrong or expired"),
     TOKEN_EXPIRED(4004,"Token expired"),
     TWO_FACTOR_REQUIRED(4005,"2FA required"),
     MAIL_NOT_VERIFIED(4006,"E-mail not verified"),
-    INVALID_TOKEN(4007, "Invalid token");
+    INVALID_TOKEN(4007, "Invalid token"),
+    TOO_MANY_TOKENS(4008, "Too many tokens in one request"),
+    TOO_MANY_ATTEMPTS(4009, "Too many failed logins, please retry later"),
+    SERVICE_BUSY(5001, "Service busy, please retry later"),
+    AI_UNAVAILABLE(5002, "AI reply failed, please retry later"),
+    TOO_MANY_REPLIES(5003, "Too many pending AI replies, please retry later");
 
     private final String message;
     private final int value;
@@ -0,0 +1,39 @@
+package chat.blubbai.backend.persistence;
+
+import chat.blubbai.backend.model.AiResponse;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface AiResponseRepository extends CrudRepository<AiResponse, String> {
+
+    /**
+     * Reads only the content of a reply cached after the given time.
+     */
+    @Query("select r.content from ai_response r where r.keyHash = :keyHash and r.created > :after")
+    String findContent(@Param("keyHash") String keyHash, @Param("after") Instant after);
+
+    /**
+     * Stores a reply in one statement; a reply stored concurrently by another instance is kept,
+     * an expired reply that has not been cleaned up yet is replaced.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into ai_response (key_hash, content, created) values (:keyHash, :content, :created) " +
+            "on conflict (key_hash) do update set content = excluded.content, created = excluded.created " +
+            "where ai_response.created <= :expiredBefore",
+            nativeQuery = true)
+    void insertIfAbsentOrExpired(@Param("keyHash") String keyHash, @Param("content") String content,
+                                 @Param("created") Instant created, @Param("expiredBefore") Instant expiredBefore);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ai_response r where r.created <= :before")
+    int deleteCreatedUpTo(@Param("before") Instant before);
+}
@@ -1,11 +1,62 @@
 package chat.blubbai.backend.persistence;
 
 import chat.blubbai.backend.model.Chat;
+import chat.blubbai.backend.model.ChatDTO;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ChatRepository extends CrudRepository<Chat, UUID> {
+
+    /**
+     * First page of the chats of a user, newest first (index chat_user_created_idx).
+     */
+    @Query("select new chat.blubbai.backend.model.ChatDTO(c.cId, c.title, c.description, c.created, c.responseCache) from Chat c " +
+            "where c.user.UUID = :uId order by c.created desc, c.cId desc")
+    List<ChatDTO> findPage(@Param("uId") UUID uId, Limit limit);
+
+    /**
+     * Page of the chats of a user that follow the given (created, cId) position, newest first.
+     */
+    @Query("select new chat.blubbai.backend.model.ChatDTO(c.cId, c.title, c.description, c.created, c.responseCache) from Chat c " +
+            "where c.user.UUID = :uId and (c.created < :created or (c.created = :created and c.cId < :cId)) " +
+            "order by c.created desc, c.cId desc")
+    List<ChatDTO> findPageAfter(@Param("uId") UUID uId, @Param("created") Instant created, @Param("cId") UUID cId, Limit limit);
+
+    /**
+     * Loads a chat only if it belongs to the user.
+     */
+    @Query("select c from Chat c where c.cId = :cId and c.user.UUID = :uId")
+    Chat findOwned(@Param("uId") UUID uId, @Param("cId") UUID cId);
+
+    /**
+     * Checks that a chat belongs to the user without loading it.
+     */
+    @Query("select case when count(c) > 0 then true else false end from Chat c where c.cId = :cId and c.user.UUID = :uId")
+    boolean existsOwned(@Param("uId") UUID uId, @Param("cId") UUID cId);
+
+    /**
+     * Reads whether the AI response cache is enabled for a chat of the user.
+     *
+     * @return the setting or null if the user has no such chat
+     */
+    @Query("select c.responseCache from Chat c where c.cId = :cId and c.user.UUID = :uId")
+    Boolean findResponseCache(@Param("uId") UUID uId, @Param("cId") UUID cId);
+
+    /**
+     * Deletes a chat of the user; its messages must be deleted before.
+     *
+     * @return 1 if the chat was deleted
+     */
+    @Modifying
+    @Query("delete from Chat c where c.cId = :cId and c.user.UUID = :uId")
+    int deleteOwned(@Param("uId") UUID uId, @Param("cId") UUID cId);
 }
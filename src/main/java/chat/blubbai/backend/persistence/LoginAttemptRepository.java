@@ -0,0 +1,55 @@
+package chat.blubbai.backend.persistence;
+
+import chat.blubbai.backend.model.LoginAttempt;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface LoginAttemptRepository extends CrudRepository<LoginAttempt, String> {
+
+    /**
+     * Increments the bucket of the key and minute, creating it if needed, in one statement.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into login_attempt (id, attempt_key, minute, failures, last_failure_millis) " +
+            "values (:key || '|' || :minute, :key, :minute, 1, :now) " +
+            "on conflict (id) do update set failures = login_attempt.failures + 1, " +
+            "last_failure_millis = greatest(login_attempt.last_failure_millis, excluded.last_failure_millis)",
+            nativeQuery = true)
+    void upsertFailure(@Param("key") String key, @Param("minute") long minute, @Param("now") long nowMillis);
+
+    /**
+     * Takes back one failure of the bucket of the key and minute, if it still exists.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update login_attempt set failures = failures - 1 where id = :key || '|' || :minute and failures > 0",
+            nativeQuery = true)
+    void decrementFailure(@Param("key") String key, @Param("minute") long minute);
+
+    @Query(value = "select cast(coalesce(sum(failures), 0) as bigint) as failures, " +
+            "cast(coalesce(max(last_failure_millis), 0) as bigint) as lastFailureMillis " +
+            "from login_attempt where attempt_key = :key and minute > :fromMinute",
+            nativeQuery = true)
+    FailureSummary sumFailures(@Param("key") String key, @Param("fromMinute") long fromMinute);
+
+    @Transactional
+    @Modifying
+    @Query("delete from login_attempt a where a.attemptKey = :key")
+    void deleteByKey(@Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("delete from login_attempt a where a.minute <= :beforeMinute")
+    void deleteUpTo(@Param("beforeMinute") long beforeMinute);
+
+    interface FailureSummary {
+        Long getFailures();
+        Long getLastFailureMillis();
+    }
+}
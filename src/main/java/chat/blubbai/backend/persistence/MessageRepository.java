@@ -1,11 +1,68 @@
 package chat.blubbai.backend.persistence;
 
 import chat.blubbai.backend.model.Message;
+import chat.blubbai.backend.model.MessageDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+/**
+ * The history queries return streams read with a JDBC fetch size, so rows are consumed while they arrive instead of
+ * being collected by the driver first. Streams must be consumed inside a transaction and closed.
+ * All of them run on the index message_chat_send_date_idx (cId, sendDate, mId).
+ */
 @Repository
 public interface MessageRepository extends CrudRepository<Message, UUID> {
+
+    String FETCH_SIZE = "50";
+
+    /**
+     * Newest messages of a chat, newest first.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = FETCH_SIZE))
+    @Query("select new chat.blubbai.backend.model.MessageDTO(m.mId, m.content, m.author, m.sendDate) from Message m " +
+            "where m.chat.cId = :cId order by m.sendDate desc, m.mId desc")
+    Stream<MessageDTO> streamLatest(@Param("cId") UUID cId, Limit limit);
+
+    /**
+     * Messages of a chat older than the given (sendDate, mId) position, newest first.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = FETCH_SIZE))
+    @Query("select new chat.blubbai.backend.model.MessageDTO(m.mId, m.content, m.author, m.sendDate) from Message m " +
+            "where m.chat.cId = :cId and (m.sendDate < :sendDate or (m.sendDate = :sendDate and m.mId < :mId)) " +
+            "order by m.sendDate desc, m.mId desc")
+    Stream<MessageDTO> streamBefore(@Param("cId") UUID cId, @Param("sendDate") Instant sendDate, @Param("mId") UUID mId, Limit limit);
+
+    /**
+     * Messages of a chat newer than the given (sendDate, mId) position, oldest first.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = FETCH_SIZE))
+    @Query("select new chat.blubbai.backend.model.MessageDTO(m.mId, m.content, m.author, m.sendDate) from Message m " +
+            "where m.chat.cId = :cId and (m.sendDate > :sendDate or (m.sendDate = :sendDate and m.mId > :mId)) " +
+            "order by m.sendDate asc, m.mId asc")
+    Stream<MessageDTO> streamAfter(@Param("cId") UUID cId, @Param("sendDate") Instant sendDate, @Param("mId") UUID mId, Limit limit);
+
+    /**
+     * Replaces the content of a message, e.g. the partial AI reply while it is generated.
+     */
+    @Modifying
+    @Query("update Message m set m.content = :content where m.mId = :mId")
+    int updateContent(@Param("mId") UUID mId, @Param("content") String content);
+
+    /**
+     * Deletes all messages of a chat with one statement, without loading them.
+     */
+    @Modifying
+    @Query("delete from Message m where m.chat.cId = :cId")
+    int deleteAllByChat(@Param("cId") UUID cId);
 }
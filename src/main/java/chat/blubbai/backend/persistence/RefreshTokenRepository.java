@@ -0,0 +1,37 @@
+package chat.blubbai.backend.persistence;
+
+import chat.blubbai.backend.model.RefreshToken;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, UUID> {
+
+    RefreshToken findByTokenHash(byte[] tokenHash);
+
+    /**
+     * Revokes the token unless it is already revoked.
+     *
+     * @return 1 if this call revoked the token, 0 if it was revoked before (e.g. by a concurrent renewal)
+     */
+    @Modifying
+    @Query("update refresh_tokens r set r.revoked = true where r.id = :id and r.revoked = false")
+    int revoke(@Param("id") UUID id);
+
+    @Modifying
+    @Query("update refresh_tokens r set r.revoked = true where r.familyId = :familyId and r.revoked = false")
+    int revokeFamily(@Param("familyId") UUID familyId);
+
+    @Modifying
+    @Query("update refresh_tokens r set r.revoked = true where r.user.UUID = :uId and r.revoked = false")
+    int revokeAllByUser(@Param("uId") UUID uId);
+
+    @Modifying
+    @Query("delete from refresh_tokens r where r.user.UUID = :uId")
+    int deleteAllByUser(@Param("uId") UUID uId);
+}
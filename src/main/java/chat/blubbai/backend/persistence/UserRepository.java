@@ -1,13 +1,79 @@
 package chat.blubbai.backend.persistence;
 
 import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
+import chat.blubbai.backend.model.enums.Method2FA;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * Usernames are unique regardless of case (index account_username_lower_idx), so they are looked up with lower().
+ */
 @Repository
 public interface UserRepository extends CrudRepository<User, UUID> {
-    User findByUsername(String username);
+    @Query("select u from account u where lower(u.username) = lower(:username)")
+    User findByUsername(@Param("username") String username);
     User findByUUID(UUID uId);
+
+    /**
+     * Loads only the columns needed to log in, without joining the role.
+     */
+    @Query("select u.UUID as UUID, u.username as username, u.password as password, u.secretMethod as secretMethod, " +
+            "u.mailVerified as mailVerified, u.secret as secret from account u where lower(u.username) = lower(:username)")
+    UserCredentials findCredentialsByUsername(@Param("username") String username);
+
+    /**
+     * Loads only the columns needed to authenticate, without joining the role.
+     */
+    UserCredentials findCredentialsByUUID(UUID uId);
+
+    /**
+     * Checks whether the username is taken, in any case, without loading the user.
+     */
+    @Query("select case when count(u) > 0 then true else false end from account u where lower(u.username) = lower(:username)")
+    boolean existsByUsername(@Param("username") String username);
+
+    /**
+     * Marks the mail address as verified without loading the user.
+     *
+     * @return 1 if the user exists
+     */
+    @Transactional
+    @Modifying
+    @Query("update account u set u.mailVerified = true, u.updatedAt = :now where u.UUID = :uId")
+    int markMailVerified(@Param("uId") UUID uId, @Param("now") Instant now);
+
+    /**
+     * Sets the 2FA method without loading the user, so no stale copy of other columns is written back.
+     *
+     * @return 1 if the user exists
+     */
+    @Transactional
+    @Modifying
+    @Query("update account u set u.secretMethod = :method, u.updatedAt = :now where u.UUID = :uId")
+    int updateSecretMethod(@Param("uId") UUID uId, @Param("method") Method2FA method, @Param("now") Instant now);
+
+    /**
+     * Replaces the password hash unless it was changed in the meantime.
+     *
+     * @return 1 if the hash was replaced
+     */
+    @Transactional
+    @Modifying
+    @Query("update account u set u.password = :newHash where u.UUID = :uId and u.password = :oldHash")
+    int updatePasswordHash(@Param("uId") UUID uId, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    /**
+     * Loads the user with phone number and role in one query (left join fetch), e.g. for the PrincipalCache.
+     */
+    @EntityGraph(attributePaths = {"phoneNumber", "role"})
+    User findWithProfileByUUID(UUID uId);
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.ai.AiProvider;
+import chat.blubbai.backend.ai.GenerationScheduler;
+import chat.blubbai.backend.config.ExecutorConfig;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.enums.ErrorResponse;
+import chat.blubbai.backend.model.enums.Sender;
+import chat.blubbai.backend.utils.EnvProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * AiReplyService
+ * <p>
+ * Answers a user message with an AI reply that is streamed to the client as Server-Sent Events.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>The user message and an empty AI message are stored first, then the reply is generated on a virtual thread.</li>
+ *     <li>Generations are admitted by the {@link GenerationScheduler}: fair across users, weighted by role, with a global cap.</li>
+ *     <li>Events: "user" (stored user message), "queue" (position while waiting for a slot, 1 = next),
+ *     "token" (text fragment), "done" (complete AI message), "error" (generation failed, the partial reply is kept).</li>
+ *     <li>The partial reply is written to the AI message at most every AI_FLUSH_INTERVAL_MS (default 1000),
+ *     not per token, and once more at the end.</li>
+ *     <li>If the client disconnects or the stream times out (AI_STREAM_TIMEOUT_MS, default 300000), the generation thread
+ *     is interrupted, which stops the upstream generation; the reply generated so far is kept. Interrupts stop before
+ *     the final partial reply is written, so that JDBC write is not cut off.</li>
+ *     <li>The provider gets the last AI_CONTEXT_MESSAGES (default 20) messages of the chat.</li>
+ *     <li>Unless the chat opted out, a reply to an identical context window is replayed from the
+ *     {@link AiResponseCacheService} with the same events, without a generation slot or provider call.
+ *     Only complete replies are cached.</li>
+ *     <li>The time from the request to the first token is recorded as "ai.reply.first.token".</li>
+ * </ul>
+ */
+@Service
+public class AiReplyService {
+
+    private static final long TIMEOUT_MS = Long.parseLong(EnvProvider.getEnvOrDefault("AI_STREAM_TIMEOUT_MS", "300000"));
+    private static final long FLUSH_INTERVAL_MS = Long.parseLong(EnvProvider.getEnvOrDefault("AI_FLUSH_INTERVAL_MS", "1000"));
+    private static final int CONTEXT_MESSAGES = Integer.parseInt(EnvProvider.getEnvOrDefault("AI_CONTEXT_MESSAGES", "20"));
+    private static final Pattern WORD_BOUNDARY = Pattern.compile("(?<=\\S)(?=\\s)");
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private AiProvider aiProvider;
+    @Autowired
+    @Qualifier(ExecutorConfig.AI_STREAM_EXECUTOR)
+    private ExecutorService streamExecutor;
+    @Autowired
+    private GenerationScheduler scheduler;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private AiResponseCacheService responseCache;
+
+    private final Timer firstToken;
+
+    public AiReplyService(MeterRegistry meterRegistry) {
+        this.firstToken = Timer.builder("ai.reply.first.token")
+                .description("Time from the request to the first token of the AI reply")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Store the user message and start streaming the AI reply.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @param content Content of the user message.
+     * @return the event stream or null if the user has no such chat.
+     * @throws RejectedExecutionException if the user already has the maximum of waiting replies.
+     */
+    public SseEmitter reply(UUID uId, UUID cId, String content) {
+        long start = System.nanoTime();
+        GenerationScheduler.Ticket ticket = scheduler.enqueue(uId, scheduler.weightOf(roleOf(uId)));
+        if (ticket == null) throw new RejectedExecutionException("Too many pending AI replies of user " + uId);
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MS);
+        Generation generation = new Generation();
+        try {
+            MessageDTO userMessage = messageService.addMessage(uId, cId, Sender.USER, content);
+            if (userMessage == null) {
+                ticket.close();
+                return null;
+            }
+            MessageDTO reply = messageService.addMessage(uId, cId, Sender.AI, "");
+            generation.start(streamExecutor.submit(() -> stream(emitter, uId, cId, userMessage, reply, ticket, generation, start)));
+        } catch (RuntimeException e) {
+            ticket.close(); // the stream task never took over the slot
+            throw e;
+        }
+        Runnable abort = () -> {
+            generation.abort();
+            ticket.close(); // the task may not have started
+        };
+        emitter.onCompletion(abort);
+        emitter.onTimeout(abort);
+        emitter.onError(e -> abort.run()); // client disconnected
+        return emitter;
+    }
+
+    /**
+     * @return the role name of the user from the principal cache, or null
+     */
+    private String roleOf(UUID uId) {
+        User user = userService.getPrincipal(uId);
+        return user == null || user.getRole() == null ? null : user.getRole().getName();
+    }
+
+    /**
+     * Generates the reply, forwards every token to the client and writes the partial reply at bounded intervals.
+     */
+    private void stream(SseEmitter emitter, UUID uId, UUID cId, MessageDTO userMessage, MessageDTO reply,
+                        GenerationScheduler.Ticket ticket, Generation generation, long start) {
+        PartialReply partial = new PartialReply(reply.getMId());
+        boolean interrupted = false;
+        try (ticket) {
+            emitter.send(SseEmitter.event().name("user").data(userMessage));
+            List<MessageDTO> history = messageService.getMessages(uId, cId, null, MessageService.Direction.BEFORE, CONTEXT_MESSAGES + 1)
+                    .getItems().stream()
+                    .filter(message -> !message.getMId().equals(reply.getMId()))
+                    .toList();
+            Consumer<String> onToken = token -> {
+                if (partial.isEmpty()) firstToken.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                send(emitter, SseEmitter.event().name("token").data(token));
+                partial.append(token);
+            };
+
+            String cacheKey = responseCache.isEnabled() && chatService.isResponseCacheEnabled(uId, cId)
+                    ? responseCache.key(aiProvider.getModelId(), CONTEXT_MESSAGES, history) : null;
+            String cached = cacheKey == null ? null : responseCache.get(cacheKey);
+            if (cached != null) {
+                ticket.close(); // a hit needs no generation slot
+                for (String token : WORD_BOUNDARY.split(cached)) onToken.accept(token);
+            } else {
+                ticket.await(position -> send(emitter, SseEmitter.event().name("queue").data(Map.of("position", position))));
+                aiProvider.generate(history, onToken);
+            }
+            interrupted = generation.finish(); // the final writes must not be interrupted
+            reply.setContent(partial.flush());
+            if (cacheKey != null && cached == null) responseCache.put(cacheKey, reply.getContent());
+            emitter.send(SseEmitter.event().name("done").data(reply));
+            emitter.complete();
+        } catch (InterruptedException e) {
+            finish(partial, generation); // client gone or timeout, keep what was generated
+            interrupted = true;
+        } catch (UncheckedIOException e) {
+            interrupted |= finish(partial, generation); // client gone while sending
+        } catch (Exception e) {
+            interrupted |= finish(partial, generation);
+            try {
+                emitter.send(SseEmitter.event().name("error").data(ErrorResponse.AI_UNAVAILABLE));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ignored) {
+                // client gone as well
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt(); // restored once the final writes are done
+        }
+    }
+
+    /**
+     * Writes the final partial reply after stopping further interrupts and clearing a pending one, as a JDBC write
+     * on an interrupted virtual thread fails and may break the pooled connection.
+     *
+     * @return true if the thread was interrupted
+     */
+    private boolean finish(PartialReply partial, Generation generation) {
+        boolean interrupted = generation.finish();
+        partial.flush();
+        return interrupted;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // aborts the generation
+        }
+    }
+
+    /**
+     * The task generating a reply. The emitter callbacks interrupt it only until it starts writing the final partial reply.
+     */
+    private static final class Generation {
+        private Future<?> future;
+        private boolean finishing;
+
+        synchronized void start(Future<?> future) {
+            this.future = future;
+        }
+
+        synchronized void abort() {
+            if (future != null) future.cancel(!finishing); // a task that has not started yet is cancelled either way
+        }
+
+        /**
+         * Stops further interrupts and clears one that already arrived. Called by the generation thread.
+         *
+         * @return true if the thread was interrupted
+         */
+        synchronized boolean finish() {
+            finishing = true;
+            return Thread.interrupted();
+        }
+    }
+
+    /**
+     * The reply generated so far, written to its message at most every FLUSH_INTERVAL_MS.
+     * Only used by the generation thread.
+     */
+    private final class PartialReply {
+        private final UUID mId;
+        private final StringBuilder content = new StringBuilder();
+        private long lastFlush = System.currentTimeMillis();
+        private int flushedLength;
+
+        PartialReply(UUID mId) {
+            this.mId = mId;
+        }
+
+        boolean isEmpty() {
+            return content.isEmpty();
+        }
+
+        void append(String token) {
+            content.append(token);
+            if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MS) flush();
+        }
+
+        String flush() {
+            String text = content.toString();
+            if (text.length() != flushedLength) {
+                messageService.updateContent(mId, text);
+                flushedLength = text.length();
+            }
+            lastFlush = System.currentTimeMillis();
+            return text;
+        }
+    }
+}
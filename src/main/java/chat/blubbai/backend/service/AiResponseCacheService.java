@@ -0,0 +1,184 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.persistence.AiResponseRepository;
+import chat.blubbai.backend.utils.EnvProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * AiResponseCacheService
+ * <p>
+ * Caches complete AI replies by exact match of their input, so repeated prompts (canned questions, identical first
+ * messages) are answered without calling the AI provider.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>The key is the SHA-256 of the model id, the parameters (context window size) and the normalised context window
+ *     (author and content of every message, trimmed, whitespace runs collapsed to one space).</li>
+ *     <li>Memory tier: bounded by the size of the replies (AI_CACHE_MAX_BYTES, default 64 MiB), least valuable entries
+ *     are evicted first.</li>
+ *     <li>Postgres tier (AI_CACHE_STORE=postgres): shared by all replicas and kept across restarts;
+ *     hits are copied to the memory tier.</li>
+ *     <li>Entries expire after AI_CACHE_TTL_HOURS (default 24) in both tiers; the Postgres tier is purged hourly.</li>
+ *     <li>AI_CACHE_STORE: "memory" (default), "postgres" (memory and Postgres) or "none" (disabled).</li>
+ *     <li>The hit ratio of both tiers is published as "ai.cache.hit.ratio", the memory tier as "cache.*" metrics
+ *     with the tag cache=aiResponses.</li>
+ * </ul>
+ */
+@Service
+public class AiResponseCacheService {
+
+    public static final String CACHE_NAME = "aiResponses";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final AiResponseRepository repository;
+    private final Duration ttl;
+    private final Cache<String, String> memory;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public AiResponseCacheService(AiResponseRepository aiResponseRepository) {
+        this(EnvProvider.getEnvOrDefault("AI_CACHE_STORE", "memory").toLowerCase(Locale.ROOT), aiResponseRepository,
+                Long.parseLong(EnvProvider.getEnvOrDefault("AI_CACHE_MAX_BYTES", "67108864")),
+                Duration.ofHours(Long.parseLong(EnvProvider.getEnvOrDefault("AI_CACHE_TTL_HOURS", "24"))));
+    }
+
+    /**
+     * Creates the cache with the given settings, e.g. for tests.
+     *
+     * @param store      "memory", "postgres" or "none"
+     * @param repository Postgres tier, only used for "postgres"
+     * @param maxBytes   size bound of the memory tier
+     * @param ttl        lifetime of an entry
+     */
+    public AiResponseCacheService(String store, AiResponseRepository repository, long maxBytes, Duration ttl) {
+        this.enabled = !"none".equals(store);
+        this.repository = "postgres".equals(store) ? repository : null;
+        this.ttl = ttl;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, String content) -> 2 * (key.length() + content.length())) // UTF-16 chars
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Calculates the cache key of a reply.
+     *
+     * @param modelId         model of the provider, see AiProvider.getModelId
+     * @param contextMessages maximum number of messages in the context window
+     * @param history         context window in chronological order
+     * @return hex SHA-256
+     */
+    public String key(String modelId, int contextMessages, List<MessageDTO> history) {
+        MessageDigest digest = sha256();
+        update(digest, modelId);
+        update(digest, Integer.toString(contextMessages));
+        for (MessageDTO message : history) {
+            update(digest, String.valueOf(message.getAuthor()));
+            update(digest, normalise(message.getContent()));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a reply in the memory tier, then in the Postgres tier.
+     *
+     * @param key see {@link #key}
+     * @return the cached reply or null
+     */
+    public String get(String key) {
+        if (!enabled) return null;
+        String content = memory.getIfPresent(key);
+        if (content == null && repository != null) {
+            content = repository.findContent(key, Instant.now().minus(ttl));
+            if (content != null) memory.put(key, content);
+        }
+        (content == null ? misses : hits).increment();
+        return content;
+    }
+
+    /**
+     * Stores a complete reply in both tiers.
+     *
+     * @param key     see {@link #key}
+     * @param content complete reply
+     */
+    public void put(String key, String content) {
+        if (!enabled || content == null || content.isEmpty()) return;
+        memory.put(key, content);
+        if (repository != null) {
+            Instant now = Instant.now();
+            repository.insertIfAbsentOrExpired(key, content, now, now.minus(ttl));
+        }
+    }
+
+    /**
+     * Removes the expired replies of the Postgres tier.
+     */
+    @Scheduled(fixedRate = 3_600_000)
+    public void purge() {
+        if (repository != null) repository.deleteCreatedUpTo(Instant.now().minus(ttl));
+    }
+
+    /**
+     * @return share of the lookups answered by either tier since the start, 0 without lookups
+     */
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return the memory tier, used to bind its statistics to the meter registry
+     */
+    public Cache<String, String> getCache() {
+        return memory;
+    }
+
+    private static String normalise(String content) {
+        return content == null ? "" : WHITESPACE.matcher(content.strip()).replaceAll(" ");
+    }
+
+    /**
+     * Adds a length-prefixed value, so that the boundaries between values are part of the key.
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package chat.blubbai.backend.service;
 
+import chat.blubbai.backend.config.ExecutorConfig;
 import chat.blubbai.backend.model.PhoneNumber;
 import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
 import chat.blubbai.backend.model.enums.Method2FA;
 import chat.blubbai.backend.persistence.UserRepository;
 import chat.blubbai.backend.utils.EnvProvider;
 import chat.blubbai.backend.utils.MailUtility;
-import chat.blubbai.backend.utils.TokenUtility;
+import chat.blubbai.backend.utils.PrincipalCache;
 import org.jboss.aerogear.security.otp.Totp;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
 public class AuthService {
 
@@ -20,7 +28,17 @@ public class AuthService {
     @Autowired
     private PhoneNumberService phoneNumberService;
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private PrincipalCache principalCache;
+    @Autowired
+    @Qualifier(ExecutorConfig.PASSWORD_HASHING_EXECUTOR)
+    private Executor hashingExecutor;
+    @Autowired
+    @Qualifier(ExecutorConfig.AUTH_IO_EXECUTOR)
+    private Executor ioExecutor;
 
     /**
      * Register a new user.
@@ -43,6 +61,29 @@ public class AuthService {
         return newUser;
     }
 
+    /**
+     * Load the credentials of a user for the login.
+     * @param username The username of the user.
+     * @return the credentials or null if the user does not exist.
+     */
+    public UserCredentials getCredentials(String username) {
+        return userRepository.findCredentialsByUsername(username);
+    }
+
+    /**
+     * Check the password against the stored hash on the password hashing executor.
+     * Only the hashing runs there; storing an upgraded hash and the work chained to the future run on the auth I/O executor,
+     * so no database round trip holds a hashing thread.
+     * @param credentials The credentials of the user.
+     * @param password The password to validate.
+     * @return future completed with true if the password is valid.
+     * @throws java.util.concurrent.RejectedExecutionException if the hashing executor is saturated.
+     */
+    public CompletableFuture<Boolean> matchesPassword(UserCredentials credentials, String password) {
+        return CompletableFuture.supplyAsync(() -> check(password, credentials.getPassword()), hashingExecutor)
+                .thenApplyAsync(check -> store(credentials.getUUID(), credentials.getPassword(), check), ioExecutor);
+    }
+
     /**
      * Validate the password of a user.
      * @param username The username of the user.
@@ -50,11 +91,11 @@ public class AuthService {
      * @return true if the password is valid, false otherwise.
      */
     public boolean validatePassword(String username, String password) {
-        User user = userRepository.findByUsername(username);
+        UserCredentials user = userRepository.findCredentialsByUsername(username);
         if (user == null) {
             return false;
         }
-        return passwordEncoder.matches(password, user.getPassword());
+        return store(user.getUUID(), user.getPassword(), check(password, user.getPassword()));
     }
 
     // -------------------- Two-Factor Authentication (2FA) --------------------
@@ -65,7 +106,7 @@ public class AuthService {
      * @param user
      */
     public void sendMailAddressVerification(User user) {
-        String link = EnvProvider.getEnv("FRONTEND_DOMAIN")+"/noa/2fa/verifyMail?token=" + TokenUtility.generateMailVerificationToken(user).getToken();
+        String link = EnvProvider.getEnv("FRONTEND_DOMAIN")+"/noa/2fa/verifyMail?token=" + tokenService.generateMailVerificationToken(user).getToken();
         MailUtility.sendEmailVerificationEmail(user.getEmail(), user.getUsername(), link);
     }
 
@@ -116,12 +157,13 @@ public class AuthService {
 
     /**
      * Set the secret method for a user (e.g., "2fa", "SMS", "email").
+     * Only the method column is updated, so a cached (possibly stale) user is never written back.
      * @param user   User object.
      * @param method The secret method to set.
      */
     public void setSecretMethod(User user, Method2FA method) {
-        user.setSecretMethod(method);
-        userRepository.save(user);
+        userRepository.updateSecretMethod(user.getUUID(), method, Instant.now());
+        principalCache.invalidate(user.getUUID());
     }
 
     /**
@@ -138,6 +180,41 @@ public class AuthService {
 
     // -------------------- Internal Helper Methods --------------------
 
+    /**
+     * Check a password and compute a new hash if the stored one does not meet the current policy
+     * (other algorithm, lower cost or stored without algorithm prefix). Only possible while the plain password is known.
+     * Does no database work, so it can run on the password hashing executor.
+     * @param password The password to validate.
+     * @param hash The stored hash.
+     * @return the result of the check.
+     */
+    private PasswordCheck check(String password, String hash) {
+        if (!passwordEncoder.matches(password, hash)) return new PasswordCheck(false, null);
+        return new PasswordCheck(true, passwordEncoder.upgradeEncoding(hash) ? passwordEncoder.encode(password) : null);
+    }
+
+    /**
+     * Store the upgraded hash of a successful check, if any, unless the hash was changed in the meantime.
+     * @param uId User ID.
+     * @param hash The hash the check was run against.
+     * @param check The result of the check.
+     * @return true if the password is valid.
+     */
+    private boolean store(UUID uId, String hash, PasswordCheck check) {
+        if (check.upgradedHash() != null && userRepository.updatePasswordHash(uId, hash, check.upgradedHash()) == 1) {
+            principalCache.invalidate(uId); // the cached user still carries the old hash
+        }
+        return check.valid();
+    }
+
+    /**
+     * Result of a password check.
+     * @param valid whether the password matches.
+     * @param upgradedHash new hash to store, or null if the stored hash meets the current policy.
+     */
+    private record PasswordCheck(boolean valid, String upgradedHash) {
+    }
+
     /**
      * Get the secret of a user for 2FA.
      * @param user User object.
@@ -0,0 +1,145 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.model.Chat;
+import chat.blubbai.backend.model.ChatDTO;
+import chat.blubbai.backend.model.CursorPageDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.persistence.ChatRepository;
+import chat.blubbai.backend.persistence.MessageRepository;
+import chat.blubbai.backend.utils.EnvProvider;
+import chat.blubbai.backend.utils.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * ChatService
+ * <p>
+ * Creates, renames, deletes and lists the chats of a user. Every operation is scoped to the owner,
+ * a chat of another user is treated as not existing.
+ *
+ * <h2>Listing:</h2>
+ * Chats are listed newest first with keyset pagination on (created, cId): a page continues after the cursor
+ * of the previous page with an index range scan, so it costs the same on the first and the last page.
+ * CHAT_PAGE_MAX_SIZE (default 100) bounds the page size.
+ */
+@Service
+public class ChatService {
+
+    public static final int MAX_PAGE_SIZE = Integer.parseInt(EnvProvider.getEnvOrDefault("CHAT_PAGE_MAX_SIZE", "100"));
+
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Create a new chat for a user.
+     * @param uId User ID of the owner.
+     * @param title Title of the chat.
+     * @param description Description of the chat (optional).
+     * @return the created chat.
+     */
+    @Transactional
+    public ChatDTO createChat(UUID uId, String title, String description) {
+        Chat chat = new Chat();
+        chat.setTitle(title);
+        chat.setDescription(description);
+        chat.setUser(entityManager.getReference(User.class, uId)); // only referenced, no select of the user
+        entityManager.persist(chat);
+        return ChatDTO.of(chat);
+    }
+
+    /**
+     * Rename a chat of a user.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @param title New title.
+     * @param description New description (optional).
+     * @return the renamed chat or null if the user has no such chat.
+     */
+    @Transactional
+    public ChatDTO renameChat(UUID uId, UUID cId, String title, String description) {
+        return updateChat(uId, cId, title, description, null);
+    }
+
+    /**
+     * Update a chat of a user; null values are left unchanged.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @param title New title, or null to keep title and description.
+     * @param description New description (optional).
+     * @param responseCache Whether AI replies may be served from and stored in the response cache, or null.
+     * @return the updated chat or null if the user has no such chat.
+     */
+    @Transactional
+    public ChatDTO updateChat(UUID uId, UUID cId, String title, String description, Boolean responseCache) {
+        Chat chat = chatRepository.findOwned(uId, cId);
+        if (chat == null) return null;
+        if (title != null) {
+            chat.setTitle(title);
+            chat.setDescription(description);
+        }
+        if (responseCache != null) chat.setResponseCache(responseCache);
+        return ChatDTO.of(chat);
+    }
+
+    /**
+     * Check whether the AI response cache is enabled for a chat of a user.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @return false if the chat opted out or the user has no such chat.
+     */
+    public boolean isResponseCacheEnabled(UUID uId, UUID cId) {
+        return Boolean.TRUE.equals(chatRepository.findResponseCache(uId, cId));
+    }
+
+    /**
+     * Delete a chat of a user with all its messages. Messages are deleted with one statement instead of
+     * loading them for the cascade.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @return true if the chat was deleted, false if the user has no such chat.
+     */
+    @Transactional
+    public boolean deleteChat(UUID uId, UUID cId) {
+        if (chatRepository.findOwned(uId, cId) == null) return false;
+        entityManager.clear(); // the bulk deletes bypass the persistence context
+        messageRepository.deleteAllByChat(cId);
+        return chatRepository.deleteOwned(uId, cId) == 1;
+    }
+
+    /**
+     * List the chats of a user, newest first.
+     * @param uId User ID of the owner.
+     * @param cursor nextCursor of the previous page or null for the first page.
+     * @param limit Page size, capped at MAX_PAGE_SIZE.
+     * @return the page and the cursor of the next page (null on the last page).
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ChatDTO> getChats(UUID uId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Limit fetch = Limit.of(size + 1); // one more row tells whether there is a next page
+        List<ChatDTO> chats;
+        if (cursor == null || cursor.isEmpty()) {
+            chats = chatRepository.findPage(uId, fetch);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            chats = chatRepository.findPageAfter(uId, after.position(), after.id(), fetch);
+        }
+        if (chats.size() <= size) return new CursorPageDTO<>(chats, null);
+
+        List<ChatDTO> page = chats.subList(0, size);
+        ChatDTO last = page.get(size - 1);
+        return new CursorPageDTO<>(List.copyOf(page), new KeysetCursor(last.getCreated(), last.getCId()).encode());
+    }
+}
@@ -0,0 +1,207 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.persistence.LoginAttemptRepository;
+import chat.blubbai.backend.utils.EnvProvider;
+import chat.blubbai.backend.utils.InMemoryLoginAttemptStore;
+import chat.blubbai.backend.utils.LoginAttemptStore;
+import chat.blubbai.backend.utils.LoginAttemptStore.LoginFailures;
+import chat.blubbai.backend.utils.PostgresLoginAttemptStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * LoginAttemptService
+ * <p>
+ * Shields the login against password guessing. Checked before the credentials are loaded,
+ * so rejected attempts cost neither a query nor a BCrypt run.
+ * An allowed attempt is counted as failed right away and only taken back when it succeeds,
+ * so a burst of parallel attempts cannot all pass the check before the first failure is recorded.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Failed logins are counted per username and per client IP in a sliding window of one-minute buckets.</li>
+ *     <li>After the free attempts, every further failure doubles the wait before the next attempt
+ *     (base delay * 2^(failures - free attempts), capped at the maximum delay).</li>
+ *     <li>A successful login resets the username, but only takes back its own attempt from the IP. Otherwise an attacker
+ *     could clear the IP by logging into an own account every few guesses. The failures of an IP leave with the window.</li>
+ *     <li>Usernames too long for the login_attempt columns are stored by their SHA-256 digest.</li>
+ *     <li>Buckets older than the window are removed every minute.</li>
+ * </ul>
+ *
+ * <h2>Configuration:</h2>
+ * <ul>
+ *     <li><b>LOGIN_ATTEMPT_STORE</b>: "memory" (default, per instance) or "postgres" (shared by all replicas).</li>
+ *     <li><b>LOGIN_WINDOW_MINUTES</b>: length of the sliding window (default 15).</li>
+ *     <li><b>LOGIN_FREE_ATTEMPTS_USER</b> / <b>LOGIN_FREE_ATTEMPTS_IP</b>: failures before the backoff starts (default 5 / 20).</li>
+ *     <li><b>LOGIN_BACKOFF_BASE_MS</b>: first delay (default 1000).</li>
+ *     <li><b>LOGIN_BACKOFF_MAX_MS</b>: maximum delay (default 900000).</li>
+ *     <li><b>LOGIN_ATTEMPT_MAX_KEYS</b>: keys tracked by the in-memory store (default 100000).</li>
+ * </ul>
+ */
+@Service
+public class LoginAttemptService {
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final int MAX_KEY_VALUE_LENGTH = 128; // login_attempt.id holds "<key>|<minute>" in varchar(255)
+
+    private final LoginAttemptStore store;
+    private final Settings settings;
+
+    @Autowired
+    public LoginAttemptService(LoginAttemptRepository loginAttemptRepository) {
+        this(createStore(loginAttemptRepository), Settings.fromEnv());
+    }
+
+    /**
+     * Creates the service with the given store and settings, e.g. for tests.
+     */
+    public LoginAttemptService(LoginAttemptStore store, Settings settings) {
+        this.store = store;
+        this.settings = settings;
+    }
+
+    private static LoginAttemptStore createStore(LoginAttemptRepository repository) {
+        if ("postgres".equalsIgnoreCase(EnvProvider.getEnvOrDefault("LOGIN_ATTEMPT_STORE", "memory"))) {
+            return new PostgresLoginAttemptStore(repository);
+        }
+        Settings settings = Settings.fromEnv();
+        return new InMemoryLoginAttemptStore(settings.windowMinutes() + 1,
+                Long.parseLong(EnvProvider.getEnvOrDefault("LOGIN_ATTEMPT_MAX_KEYS", "100000")));
+    }
+
+    /**
+     * Checks whether a login of the username from the IP may be attempted now.
+     *
+     * @param username submitted username
+     * @param ip       client IP
+     * @return 0 if the attempt is allowed, otherwise the milliseconds until the next attempt is allowed
+     */
+    public long getRetryAfterMillis(String username, String ip) {
+        return getRetryAfterMillis(username, ip, System.currentTimeMillis());
+    }
+
+    public long getRetryAfterMillis(String username, String ip, long nowMillis) {
+        long fromMinute = nowMillis / MINUTE_MILLIS - settings.windowMinutes();
+        long user = retryAfter(store.getFailures(userKey(username), fromMinute), settings.freeAttemptsUser(), nowMillis);
+        long address = retryAfter(store.getFailures(ipKey(ip), fromMinute), settings.freeAttemptsIp(), nowMillis);
+        return Math.max(user, address);
+    }
+
+    /**
+     * Checks whether a login of the username from the IP may be attempted now and, if so, counts it as failed
+     * until {@link #loginSucceeded} or {@link #attemptAborted} takes it back.
+     *
+     * @param username  submitted username
+     * @param ip        client IP
+     * @param nowMillis time of the attempt, to be passed on to loginSucceeded or attemptAborted
+     * @return 0 if the attempt is allowed, otherwise the milliseconds until the next attempt is allowed
+     */
+    public long tryAttempt(String username, String ip, long nowMillis) {
+        long retryAfter = getRetryAfterMillis(username, ip, nowMillis);
+        if (retryAfter == 0) loginFailed(username, ip, nowMillis);
+        return retryAfter;
+    }
+
+    /**
+     * Counts a failed login for the username and the IP.
+     *
+     * @param username submitted username, also counted if it does not exist
+     * @param ip       client IP
+     */
+    public void loginFailed(String username, String ip) {
+        loginFailed(username, ip, System.currentTimeMillis());
+    }
+
+    public void loginFailed(String username, String ip, long nowMillis) {
+        long minute = nowMillis / MINUTE_MILLIS;
+        store.recordFailure(userKey(username), minute, nowMillis);
+        store.recordFailure(ipKey(ip), minute, nowMillis);
+    }
+
+    /**
+     * Resets the failures of the username after a successful login and takes back the attempt from the IP.
+     *
+     * @param username      username
+     * @param ip            client IP
+     * @param attemptMillis time of the attempt passed to tryAttempt
+     */
+    public void loginSucceeded(String username, String ip, long attemptMillis) {
+        store.reset(userKey(username));
+        store.release(ipKey(ip), attemptMillis / MINUTE_MILLIS);
+    }
+
+    /**
+     * Takes back an attempt whose password was never checked, e.g. because the hashing executor was saturated.
+     *
+     * @param username      submitted username
+     * @param ip            client IP
+     * @param attemptMillis time of the attempt passed to tryAttempt
+     */
+    public void attemptAborted(String username, String ip, long attemptMillis) {
+        long minute = attemptMillis / MINUTE_MILLIS;
+        store.release(userKey(username), minute);
+        store.release(ipKey(ip), minute);
+    }
+
+    @Scheduled(fixedRate = MINUTE_MILLIS)
+    public void decay() {
+        store.decay(System.currentTimeMillis() / MINUTE_MILLIS - settings.windowMinutes());
+    }
+
+    private long retryAfter(LoginFailures failures, int freeAttempts, long nowMillis) {
+        if (failures.count() < freeAttempts) return 0;
+        long exponent = Math.min(failures.count() - freeAttempts, 30);
+        long backoff = Math.min(settings.maxBackoff().toMillis(), settings.baseBackoff().toMillis() << exponent);
+        return Math.max(0, failures.lastFailureMillis() + backoff - nowMillis);
+    }
+
+    private static String userKey(String username) {
+        return key("u", username == null ? "" : username.toLowerCase(Locale.ROOT));
+    }
+
+    private static String ipKey(String ip) {
+        return key("ip", String.valueOf(ip));
+    }
+
+    /**
+     * @return "&lt;type&gt;:&lt;value&gt;", or "&lt;type&gt;#&lt;SHA-256 of value&gt;" if the value is too long
+     */
+    private static String key(String type, String value) {
+        if (value.length() <= MAX_KEY_VALUE_LENGTH) return type + ":" + value;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return type + "#" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Limits of the login shield.
+     *
+     * @param windowMinutes    length of the sliding window
+     * @param freeAttemptsUser failures of a username before the backoff starts
+     * @param freeAttemptsIp   failures of an IP before the backoff starts
+     * @param baseBackoff      first delay
+     * @param maxBackoff       maximum delay
+     */
+    public record Settings(int windowMinutes, int freeAttemptsUser, int freeAttemptsIp, Duration baseBackoff, Duration maxBackoff) {
+
+        public static Settings fromEnv() {
+            return new Settings(
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("LOGIN_WINDOW_MINUTES", "15")),
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("LOGIN_FREE_ATTEMPTS_USER", "5")),
+                    Integer.parseInt(EnvProvider.getEnvOrDefault("LOGIN_FREE_ATTEMPTS_IP", "20")),
+                    Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("LOGIN_BACKOFF_BASE_MS", "1000"))),
+                    Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("LOGIN_BACKOFF_MAX_MS", "900000"))));
+        }
+    }
+}
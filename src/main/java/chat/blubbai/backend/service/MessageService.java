@@ -0,0 +1,126 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.model.Chat;
+import chat.blubbai.backend.model.CursorPageDTO;
+import chat.blubbai.backend.model.Message;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.enums.Sender;
+import chat.blubbai.backend.persistence.ChatRepository;
+import chat.blubbai.backend.persistence.MessageRepository;
+import chat.blubbai.backend.utils.EnvProvider;
+import chat.blubbai.backend.utils.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * MessageService
+ * <p>
+ * Stores the messages of a chat and reads its history page by page, never through {@code Chat.messages},
+ * so the memory of a request is bounded by the page size and not by the length of the chat.
+ *
+ * <h2>Paging:</h2>
+ * <ul>
+ *     <li>Without cursor the newest messages are returned.</li>
+ *     <li>previousCursor continues with older messages, nextCursor with newer ones (keyset on (sendDate, mId)).</li>
+ *     <li>Every page is in chronological order.</li>
+ *     <li>MESSAGE_PAGE_MAX_SIZE (default 100) bounds the page size.</li>
+ * </ul>
+ */
+@Service
+public class MessageService {
+
+    public static final int MAX_PAGE_SIZE = Integer.parseInt(EnvProvider.getEnvOrDefault("MESSAGE_PAGE_MAX_SIZE", "100"));
+
+    /**
+     * Direction of a page relative to its cursor.
+     */
+    public enum Direction {
+        BEFORE, AFTER
+    }
+
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Store a message in a chat of the user.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @param author USER or AI.
+     * @param content Content of the message, empty for an AI reply that is still generated.
+     * @return the stored message or null if the user has no such chat.
+     */
+    @Transactional
+    public MessageDTO addMessage(UUID uId, UUID cId, Sender author, String content) {
+        if (!chatRepository.existsOwned(uId, cId)) return null;
+        Message message = new Message();
+        message.setAuthor(author);
+        message.setContent(content);
+        message.setChat(entityManager.getReference(Chat.class, cId)); // only referenced, no select of the chat
+        entityManager.persist(message);
+        return MessageDTO.of(message);
+    }
+
+    /**
+     * Replace the content of a message, e.g. the partial AI reply.
+     * @param mId Message ID.
+     * @param content New content.
+     */
+    @Transactional
+    public void updateContent(UUID mId, String content) {
+        messageRepository.updateContent(mId, content);
+    }
+
+    /**
+     * Read one page of the history of a chat of the user.
+     * @param uId User ID of the owner.
+     * @param cId Chat ID.
+     * @param cursor previousCursor or nextCursor of a page, or null for the newest messages.
+     * @param direction BEFORE for older messages (previousCursor), AFTER for newer messages (nextCursor).
+     * @param limit Page size, capped at MAX_PAGE_SIZE.
+     * @return the page in chronological order or null if the user has no such chat.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<MessageDTO> getMessages(UUID uId, UUID cId, String cursor, Direction direction, int limit) {
+        if (!chatRepository.existsOwned(uId, cId)) return null;
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Limit fetch = Limit.of(size + 1); // one more row tells whether the history continues
+        KeysetCursor at = cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor);
+
+        boolean forward = at != null && direction == Direction.AFTER;
+        List<MessageDTO> messages;
+        try (Stream<MessageDTO> rows = at == null ? messageRepository.streamLatest(cId, fetch)
+                : forward ? messageRepository.streamAfter(cId, at.position(), at.id(), fetch)
+                : messageRepository.streamBefore(cId, at.position(), at.id(), fetch)) {
+            messages = new ArrayList<>(size + 1);
+            rows.forEachOrdered(messages::add);
+        }
+
+        boolean more = messages.size() > size;
+        if (more) messages.remove(size);
+        if (!forward) Collections.reverse(messages); // read newest first, returned oldest first
+
+        if (messages.isEmpty()) return new CursorPageDTO<>(messages, null, forward ? cursor : null); // keep polling from the same position
+        MessageDTO oldest = messages.get(0);
+        MessageDTO newest = messages.get(messages.size() - 1);
+        // Older messages exist if more rows were read backwards or the page was read forwards from a cursor.
+        String previous = forward || more ? new KeysetCursor(oldest.getSendDate(), oldest.getMId()).encode() : null;
+        // The newest position is always returned, so new messages can be polled with it.
+        String next = new KeysetCursor(newest.getSendDate(), newest.getMId()).encode();
+        return new CursorPageDTO<>(messages, previous, next);
+    }
+}
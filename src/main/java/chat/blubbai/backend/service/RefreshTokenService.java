@@ -0,0 +1,109 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.model.RefreshToken;
+import chat.blubbai.backend.model.TokenPairDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
+import chat.blubbai.backend.persistence.RefreshTokenRepository;
+import chat.blubbai.backend.utils.UuidV7;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * RefreshTokenService
+ * <p>
+ * Stores the issued refresh tokens and renews them.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Tokens are looked up by the SHA-256 digest of the compact token (unique index, one query).</li>
+ *     <li>Every renewal revokes the presented token and issues a new one of the same family (rotation).</li>
+ *     <li>If an already rotated token is presented again, it was stolen or replayed,
+ *     so the whole family is revoked and the user has to log in again (reuse detection).</li>
+ * </ul>
+ */
+@Service
+public class RefreshTokenService {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserService userService;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Issues and stores the first refresh token of a new family, e.g. on login.
+     *
+     * @param user               User
+     * @param twoFactorCompleted whether the user completed 2FA, carried over to the renewed access tokens
+     * @return stored refresh token
+     */
+    @Transactional
+    public RefreshToken createRefreshToken(User user, boolean twoFactorCompleted) {
+        return store(user, UuidV7.generate(), twoFactorCompleted);
+    }
+
+    /**
+     * Renews a refresh token: revokes it and issues a new access and refresh token.
+     *
+     * @param token compact refresh token
+     * @return new token pair or null if the token is invalid, expired, unknown or was already used
+     */
+    @Transactional
+    public TokenPairDTO renew(String token) {
+        if (token == null || !tokenService.verifyRefreshToken(token)) return null;
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(hash(token));
+        if (stored == null || stored.getExpiresAt().isBefore(Instant.now())) return null;
+
+        if (stored.isRevoked() || refreshTokenRepository.revoke(stored.getId()) == 0) {
+            refreshTokenRepository.revokeFamily(stored.getFamilyId()); // reuse of a rotated token
+            return null;
+        }
+
+        UserCredentials credentials = userService.getCredentials(stored.getUser().getUUID()); // id of the lazy proxy, no entity load
+        if (credentials == null) return null;
+        User user = credentials.toUser();
+        RefreshToken next = store(user, stored.getFamilyId(), stored.isTwoFactorCompleted());
+        return new TokenPairDTO(tokenService.generateAccessToken(user, stored.isTwoFactorCompleted()), next);
+    }
+
+    /**
+     * Issues a refresh token and persists it with its digest.
+     * The user is only referenced, so no additional select is needed.
+     */
+    private RefreshToken store(User user, UUID familyId, boolean twoFactorCompleted) {
+        RefreshToken refreshToken = tokenService.generateRefreshToken(user);
+        refreshToken.setUser(entityManager.getReference(User.class, user.getUUID()));
+        refreshToken.setTokenHash(hash(refreshToken.getToken()));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setTwoFactorCompleted(twoFactorCompleted);
+        entityManager.persist(refreshToken); // the id is preset (jti), so save() would select before inserting
+        return refreshToken;
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the token.
+     *
+     * @param token compact JWT
+     * @return 32 byte digest
+     */
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package chat.blubbai.backend.service;
+
+import chat.blubbai.backend.config.ExecutorConfig;
+import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.RefreshToken;
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.model.TokenValidationDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
+import chat.blubbai.backend.utils.EcKeyRing;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import chat.blubbai.backend.utils.TokenDenylist;
+import chat.blubbai.backend.utils.UuidV7;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import io.jsonwebtoken.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.Key;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * TokenService
+ * <p>
+ * Signs and verifies all JWTs of the application.
+ * The keys and the parser are created once and shared by all requests; the verification key is
+ * selected by the "kid" header of the token (see {@link JwtKeyRing}), so secrets can be rotated without a restart.
+ * If ES256 signing is enabled, access tokens are signed with the rotating key pairs of the {@link EcKeyRing},
+ * whose public keys are published as JWKS for local verification by other services.
+ *
+ * <h2>Usage:</h2>
+ * This service is used by the filters, controllers and the AuthService to issue and check tokens.
+ */
+@Service
+public class TokenService {
+
+    public static final long ACCESS_TOKEN_LIFETIME = 600000; // 10 minutes
+
+    private final JwtKeyRing keyRing;
+    private final EcKeyRing ecKeyRing;
+    private final FastTokenVerifier fastVerifier;
+    private final VerifiedTokenCache tokenCache;
+    private final UserService userService;
+    private final TokenDenylist denylist;
+    private final Executor verificationExecutor;
+    private final JwtParser parser;
+
+    public TokenService(JwtKeyRing keyRing, EcKeyRing ecKeyRing, FastTokenVerifier fastVerifier, VerifiedTokenCache tokenCache,
+                        UserService userService, TokenDenylist denylist,
+                        @Qualifier(ExecutorConfig.TOKEN_VERIFICATION_EXECUTOR) Executor verificationExecutor) {
+        this.keyRing = keyRing;
+        this.ecKeyRing = ecKeyRing;
+        this.fastVerifier = fastVerifier;
+        this.tokenCache = tokenCache;
+        this.userService = userService;
+        this.denylist = denylist;
+        this.verificationExecutor = verificationExecutor;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    // resolves the current keys on every parse, so the parser survives rotations
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return EcKeyRing.ALGORITHM.equals(header.getAlgorithm())
+                                ? ecKeyRing.resolveSigningKey(header, claims)
+                                : keyRing.resolveSigningKey(header, claims);
+                    }
+                })
+                .build();
+    }
+
+    // -------------------- Token Generation --------------------
+
+    /**
+     * Generates a Refresh Token, it is stored by the RefreshTokenService
+     *
+     * @param user User
+     * @return refreshToken Token with expiration 14 days
+     */
+    public RefreshToken generateRefreshToken(User user) {
+        Date now = new Date();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setId(UuidV7.generate()); // also the jti, makes every token unique
+        refreshToken.setUser(user);
+        refreshToken.setToken(sign(Jwts.builder()
+                .setId(refreshToken.getId().toString())
+                .setSubject(user.getUsername())
+                .claim("tokenType", "refresh")
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 1209600000))));
+        refreshToken.setExpiresAt(now.toInstant().plusMillis(1209600000)); // 14 days
+        return refreshToken;
+    }
+
+    /**
+     * Generates an Access Token
+     *
+     * @param user User
+     * @param twoFactorCompleted whether the user completed 2FA
+     * @return accessToken Token with expiration 10 minutes, signed with ES256 if enabled
+     */
+    public AccessTokenDTO generateAccessToken(User user, boolean twoFactorCompleted) {
+        Date now = new Date();
+        return new AccessTokenDTO(signAccessToken(Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim("tokenType", "access")
+                .claim("uId", user.getUUID())
+                .claim("secretMethod", user.getSecretMethod())
+                .claim("2fa_completed", twoFactorCompleted)
+                .claim("mail_verified", user.isMailVerified())
+                //.claim("role", user.getRole().getRId())
+                .claim("iat_ms", now.getTime()) // "iat" has second precision, too coarse for the denylist cutoff
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ACCESS_TOKEN_LIFETIME))));
+    }
+
+    /**
+     * Generates a Mail Verification Token
+     *
+     * @param user User
+     * @return token with expiration 12 hours
+     */
+    public AccessTokenDTO generateMailVerificationToken(User user) {
+        Date now = new Date();
+        return new AccessTokenDTO(sign(Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim("tokenType", "mail_verification")
+                .claim("uId", user.getUUID())
+                .claim("mail_verified", true)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 43200000)))); // 12 hours
+    }
+
+    /**
+     * Creates a test token for development purposes
+     * WARNING: Do not use this in production!
+     *
+     * @return Token
+     */
+    public AccessTokenDTO createTestToken() {
+        Date now = new Date();
+        return new AccessTokenDTO(sign(Jwts.builder()
+                .setSubject("lupier")
+                .claim("tokenType", "access")
+                .claim("uId", 1)
+                .claim("secretMethod", null)
+                //.claim("role", user.getRole().getRId())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 999999999))));
+    }
+
+    // -------------------- Token Validation --------------------
+
+    /**
+     * Parses and verifies the Token once and collects all claims needed to handle a request
+     *
+     * @param token Token
+     * @return verified claims or null if the token is invalid, expired or revoked
+     */
+    public TokenClaims parseToken(AccessTokenDTO token) {
+        if (token == null || token.getToken() == null) return null;
+        TokenClaims claims = tokenCache.get(token.getToken(), this::verifyToken); // crypto only on a cache miss
+        return isRevoked(claims) ? null : claims;
+    }
+
+    /**
+     * Validates the Token
+     *
+     * @param token a Token
+     * @return boolean
+     */
+    public boolean validateToken(AccessTokenDTO token) {
+        return parseToken(token) != null;
+    }
+
+    /**
+     * Validates many tokens at once, e.g. for a gateway after a reconnect storm.
+     * Cached tokens are answered directly, all others are verified in parallel on the token verification executor.
+     *
+     * @param tokens Tokens
+     * @return one result per token, in the order of the tokens
+     */
+    public List<TokenValidationDTO> validateTokens(List<AccessTokenDTO> tokens) {
+        List<CompletableFuture<TokenClaims>> results = new ArrayList<>(tokens.size());
+        for (AccessTokenDTO token : tokens) {
+            TokenClaims cached = token != null && token.getToken() != null ? tokenCache.getIfPresent(token.getToken()) : null;
+            if (isRevoked(cached)) {
+                results.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            results.add(cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.supplyAsync(() -> parseToken(token), verificationExecutor));
+        }
+        List<TokenValidationDTO> validations = new ArrayList<>(results.size());
+        for (CompletableFuture<TokenClaims> result : results) validations.add(TokenValidationDTO.of(result.join()));
+        return validations;
+    }
+
+    /**
+     * Returns the User of the Token
+     *
+     * @param token Token
+     * @return user User (cached, with phone number and role) or null if the token is invalid or carries no uId
+     */
+    public User getUser(AccessTokenDTO token) {
+        TokenClaims claims = parseToken(token);
+        if (claims == null || claims.uId() == null) return null;
+        return userService.getPrincipal(claims.uId());
+    }
+
+    /**
+     * Verifies the signature and expiration of a Refresh Token.
+     * Refresh tokens are used once, so they are not put into the verified-token cache.
+     *
+     * @param token compact refresh token
+     * @return true if the token is a valid refresh token
+     */
+    public boolean verifyRefreshToken(String token) {
+        TokenClaims claims = verifyToken(token);
+        return claims != null && "refresh".equals(claims.tokenType());
+    }
+
+    /**
+     * Retrieves the User from a Mail Verification Token
+     * If the token does not contain a uId, it will try to get the user by username.
+     * If the token is invalid or expired, it will return null.
+     *
+     * @param token compact JWT
+     * @return transient User with the credential fields only, or null if the token is invalid or expired
+     */
+    public User getUserFromMailToken(String token) {
+        try {
+            Claims claims = parseClaims(token);
+            String uIdString = claims.get("uId", String.class);
+            UserCredentials credentials;
+            if (uIdString != null) {
+                UUID uId = UUID.fromString(uIdString);
+                credentials = userService.getCredentials(uId);
+            } else {
+                String username = claims.getSubject();
+                if (username == null) {
+                    return null;
+                }
+                credentials = userService.getCredentialsByUsername(username);
+            }
+            return credentials == null ? null : credentials.toUser();
+        } catch (Exception e) {
+            System.out.println("Unbekannter Fehler beim Parsen des Tokens: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // -------------------- Key Rotation --------------------
+
+    /**
+     * Reloads the signing keys (see JWT_KEYS_FILE).
+     * Cached verifications are dropped if the keys changed, so tokens of a retired key are rejected at once.
+     */
+    @Scheduled(fixedDelayString = "${JWT_KEYS_RELOAD_MS:60000}")
+    public void reloadKeys() {
+        if (keyRing.reload()) tokenCache.invalidateAll();
+        ecKeyRing.rotate(Instant.now()); // retired EC keys only signed tokens that have already expired
+    }
+
+    /**
+     * Returns the public keys for access token verification by other services.
+     *
+     * @return JWKS document, without keys if ES256 signing is disabled
+     */
+    public Map<String, ?> getJwks() {
+        return ecKeyRing.getJwks();
+    }
+
+    // -------------------- Internal Helper Methods --------------------
+
+    /**
+     * Checks the denylist, which is consulted after the cache because revocations do not evict cached tokens.
+     *
+     * @param claims verified claims or null
+     * @return true if the token was revoked
+     */
+    private boolean isRevoked(TokenClaims claims) {
+        return claims != null && denylist.isDenied(claims.uId(), claims.issuedAt());
+    }
+
+    /**
+     * Signs the token with the active key and writes its key id to the header.
+     *
+     * @param builder token without signature
+     * @return compact JWT
+     */
+    private String sign(JwtBuilder builder) {
+        Map.Entry<String, Key> signingKey = keyRing.getSigningKey();
+        return builder
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKey())
+                .signWith(signingKey.getValue(), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    /**
+     * Signs an access token with the current EC key if ES256 signing is enabled, otherwise like {@link #sign(JwtBuilder)}.
+     *
+     * @param builder token without signature
+     * @return compact JWT
+     */
+    private String signAccessToken(JwtBuilder builder) {
+        if (!ecKeyRing.isEnabled()) return sign(builder);
+        EcKeyRing.EcKey signingKey = ecKeyRing.getSigningKey();
+        return builder
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
+                .signWith(signingKey.keyPair().getPrivate(), SignatureAlgorithm.ES256)
+                .compact();
+    }
+
+    /**
+     * Verifies the signature of the Token and returns its claims
+     *
+     * @param token compact JWT
+     * @return claims
+     * @throws JwtException if the token is invalid or expired
+     */
+    private Claims parseClaims(String token) throws JwtException {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Verifies the signature and expiration of the Token.
+     * Our own HS512 tokens are checked by the FastTokenVerifier, everything else (including ES256) by jjwt.
+     *
+     * @param token compact JWT
+     * @return verified claims or null if the token is invalid or expired
+     */
+    private TokenClaims verifyToken(String token) {
+        TokenClaims claims = fastVerifier.verify(token);
+        if (claims != FastTokenVerifier.UNSUPPORTED) return claims;
+        return verifyTokenWithJjwt(token);
+    }
+
+    /**
+     * Verifies the signature and expiration of the Token with the generic jjwt parser
+     *
+     * @param token compact JWT
+     * @return verified claims or null if the token is invalid or expired
+     */
+    private TokenClaims verifyTokenWithJjwt(String token) {
+        try {
+            Claims claims = parseClaims(token);
+            if (claims.getExpiration() == null || !claims.getExpiration().after(new Date())) return null;
+            return toTokenClaims(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts verified jjwt claims into the immutable TokenClaims
+     *
+     * @param claims verified claims
+     * @return TokenClaims
+     */
+    private static TokenClaims toTokenClaims(Claims claims) {
+        UUID uId = null;
+        Object rawUId = claims.get("uId");
+        if (rawUId != null) {
+            try {
+                uId = UUID.fromString(rawUId.toString());
+            } catch (IllegalArgumentException e) {
+                // test tokens carry a numeric uId
+            }
+        }
+        return new TokenClaims(
+                claims.getSubject(),
+                uId,
+                claims.get("tokenType", String.class),
+                claims.get("secretMethod", String.class),
+                claims.get("2fa_completed", Boolean.class),
+                claims.get("mail_verified", Boolean.class),
+                issuedAt(claims),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+    }
+
+    /**
+     * Reads the issue time, in milliseconds from "iat_ms" if present and in seconds from "iat" otherwise
+     *
+     * @param claims verified claims
+     * @return issue time or null if the token carries none
+     */
+    private static Instant issuedAt(Claims claims) {
+        Long issuedAtMillis = claims.get("iat_ms", Long.class);
+        if (issuedAtMillis != null) return Instant.ofEpochMilli(issuedAtMillis);
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+    }
+}
@@ -2,12 +2,21 @@ package chat.blubbai.backend.service;
 
 // ...existing imports...
 
+import chat.blubbai.backend.model.PhoneNumber;
 import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
+import chat.blubbai.backend.model.UserProfileDTO;
+import chat.blubbai.backend.model.enums.Method2FA;
+import chat.blubbai.backend.persistence.RefreshTokenRepository;
 import chat.blubbai.backend.persistence.UserRepository;
+import chat.blubbai.backend.utils.PrincipalCache;
+import chat.blubbai.backend.utils.TokenDenylist;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.UUID;
 
 /**
@@ -32,7 +41,13 @@ public class UserService {
     @Autowired
     private PhoneNumberService phoneNumberService;
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private TokenDenylist tokenDenylist;
+    @Autowired
+    private PrincipalCache principalCache;
 
     // -------------------- User CRUD Operations --------------------
 
@@ -53,6 +68,28 @@ public class UserService {
         return this.userRepository.findByUUID(uId);
     }
 
+    /**
+     * Retrieve the authenticated user by the uId claim of the access token.
+     * The user is cached with phone number and role; it is detached, so other associations must not be accessed.
+     * @param uId User ID from the verified token claims.
+     * @return User object or null if not found.
+     */
+    public User getPrincipal(UUID uId) {
+        return principalCache.get(uId, userRepository::findWithProfileByUUID);
+    }
+
+    /**
+     * Build the profile of a user in a read-only transaction.
+     * Phone number and role are fetched with the user in one query, so the DTO is complete before the transaction ends.
+     * @param uId User ID from the verified token claims.
+     * @return UserProfileDTO or null if not found.
+     */
+    @Transactional(readOnly = true)
+    public UserProfileDTO getProfile(UUID uId) {
+        User user = getPrincipal(uId);
+        return user == null ? null : UserProfileDTO.of(user);
+    }
+
     /**
      * Retrieve a user by their username.
      * @param username Username.
@@ -63,17 +100,51 @@ public class UserService {
     }
 
     /**
-     * Update user information (username, email, phone number).
-     * @param loggedIn User object containing updated information.
+     * Check whether a username is already taken.
+     * @param username Username.
+     * @return true if a user with this username exists.
      */
-    public void updateUser(User loggedIn) {
-        User existingUser = getUser(loggedIn.getUUID());
-        if (existingUser != null) {
-            existingUser.setUsername(loggedIn.getUsername());
-            existingUser.setEmail(loggedIn.getEmail());
-            existingUser.setPhoneNumber(loggedIn.getPhoneNumber());
-            userRepository.save(existingUser);
-        }
+    public boolean existsByUsername(String username) {
+        return userRepository.existsByUsername(username);
+    }
+
+    /**
+     * Retrieve the credentials of a user (no role or phone number), e.g. to issue tokens.
+     * @param uId User ID.
+     * @return UserCredentials or null if not found.
+     */
+    public UserCredentials getCredentials(UUID uId) {
+        return userRepository.findCredentialsByUUID(uId);
+    }
+
+    /**
+     * Retrieve the credentials of a user (no role or phone number) by their username.
+     * @param username Username.
+     * @return UserCredentials or null if not found.
+     */
+    public UserCredentials getCredentialsByUsername(String username) {
+        return userRepository.findCredentialsByUsername(username);
+    }
+
+    /**
+     * Update user information (email, phone number, 2FA method).
+     * The changes are applied to the user loaded in this transaction; the cached principal is never modified.
+     * @param uId User ID.
+     * @param email The new email address.
+     * @param phoneNumber The new phone number.
+     * @param secretMethod The new 2FA method, or null to disable it.
+     * @return UserProfileDTO of the updated user or null if not found.
+     */
+    @Transactional
+    public UserProfileDTO updateUser(UUID uId, String email, PhoneNumber phoneNumber, Method2FA secretMethod) {
+        User existingUser = userRepository.findWithProfileByUUID(uId);
+        if (existingUser == null) return null;
+        existingUser.setEmail(email);
+        existingUser.setPhoneNumber(phoneNumber);
+        existingUser.setSecretMethod(secretMethod);
+        User saved = userRepository.save(existingUser);
+        principalCache.invalidate(uId);
+        return UserProfileDTO.of(saved);
     }
 
     /**
@@ -81,10 +152,14 @@ public class UserService {
      * @param user User object to be deleted.
      * @return true if the user was deleted successfully, false otherwise.
      */
+    @Transactional
     public boolean deleteUser(User user) {
         User existingUser = getUser(user.getUUID());
         if (existingUser != null) {
+            refreshTokenRepository.deleteAllByUser(existingUser.getUUID());
             userRepository.delete(existingUser);
+            tokenDenylist.revoke(existingUser.getUUID()); // outstanding access tokens must not outlive the account
+            principalCache.invalidate(existingUser.getUUID());
             return true;
         }
         return false;
@@ -94,19 +169,29 @@ public class UserService {
 
     /**
      * Update the password of a user.
+     * Revokes all tokens issued so far, so every session has to log in with the new password.
      * @param user User object.
      * @param password The new password to set.
      */
+    @Transactional
     public void updatePassword(User user, String password) {
         User existingUser = getUser(user.getUUID());
         if (existingUser != null) {
             existingUser.setPassword(passwordEncoder.encode(password));
             userRepository.save(existingUser);
+            refreshTokenRepository.revokeAllByUser(existingUser.getUUID());
+            tokenDenylist.revoke(existingUser.getUUID());
         }
+        principalCache.invalidate(user.getUUID());
     }
 
+    /**
+     * Mark the mail address of a user as verified with one update statement.
+     * @param user User object, only the UUID is used.
+     */
     public void setMailVerified(User user) {
         user.setMailVerified(true);
-        userRepository.save(user);
+        userRepository.markMailVerified(user.getUUID(), Instant.now());
+        principalCache.invalidate(user.getUUID());
     }
 }
@@ -0,0 +1,366 @@
+package chat.blubbai.backend.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * EcKeyRing
+ * <p>
+ * Holds the ES256 key pairs used to sign access tokens when asymmetric signing is enabled.
+ * The public keys are published as JWKS, so other services can verify access tokens locally
+ * instead of calling the validateToken endpoint.
+ *
+ * <h2>Rotation:</h2>
+ * Every key signs for one rotation interval. The key of the next interval is generated and published in advance,
+ * and a retired key stays published for the overlap, so consumers with a cached JWKS know every key of every live token.
+ * The overlap must therefore be longer than the access token lifetime plus the JWKS cache time.
+ *
+ * <h2>Configuration:</h2>
+ * <ul>
+ *     <li><b>JWT_SIGNING_ALG</b>: "ES256" signs access tokens with this key ring, "HS512" (default) with the JwtKeyRing.</li>
+ *     <li><b>JWT_EC_ROTATION_HOURS</b>: lifetime of a signing key (default 24).</li>
+ *     <li><b>JWT_EC_OVERLAP_MINUTES</b>: publication before and after the signing period (default 60).</li>
+ *     <li><b>JWT_EC_KEYS_FILE</b>: file on storage shared by all instances that holds the key pairs. Rotation runs under
+ *     a file lock and only generates keys the file does not hold yet, so all instances sign and verify with the same keys
+ *     and keep them across restarts. Without it the keys only live in the memory of one instance.</li>
+ * </ul>
+ */
+@Component
+public class EcKeyRing extends SigningKeyResolverAdapter {
+
+    public static final String ALGORITHM = SignatureAlgorithm.ES256.getValue();
+    /**
+     * Tolerated clock difference between instances sharing a keys file.
+     */
+    public static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private static final Logger LOG = LoggerFactory.getLogger(EcKeyRing.class);
+
+    private final boolean enabled;
+    private final Duration rotationInterval;
+    private final Duration overlap;
+    private final Path keysFile;
+    private volatile List<EcKey> keys = List.of();
+    private volatile long keysFileModified = -1;
+
+    /**
+     * Creates the key ring from the environment (JWT_SIGNING_ALG, JWT_EC_ROTATION_HOURS, JWT_EC_OVERLAP_MINUTES, JWT_EC_KEYS_FILE).
+     */
+    public EcKeyRing() {
+        this(ALGORITHM.equalsIgnoreCase(EnvProvider.getEnvOrDefault("JWT_SIGNING_ALG", SignatureAlgorithm.HS512.getValue())),
+                Duration.ofHours(Long.parseLong(EnvProvider.getEnvOrDefault("JWT_EC_ROTATION_HOURS", "24"))),
+                Duration.ofMinutes(Long.parseLong(EnvProvider.getEnvOrDefault("JWT_EC_OVERLAP_MINUTES", "60"))),
+                Optional.ofNullable(EnvProvider.getEnvOrDefault("JWT_EC_KEYS_FILE", null)).map(Path::of).orElse(null));
+    }
+
+    /**
+     * Creates an in-memory key ring with the given settings, e.g. for tests and benchmarks.
+     *
+     * @param enabled          whether access tokens are signed with ES256
+     * @param rotationInterval lifetime of a signing key
+     * @param overlap          publication before and after the signing period
+     */
+    public EcKeyRing(boolean enabled, Duration rotationInterval, Duration overlap) {
+        this(enabled, rotationInterval, overlap, null);
+    }
+
+    /**
+     * Creates a key ring with the given settings.
+     *
+     * @param enabled          whether access tokens are signed with ES256
+     * @param rotationInterval lifetime of a signing key
+     * @param overlap          publication before and after the signing period
+     * @param keysFile         shared file holding the key pairs, or null to keep them in memory
+     * @throws IllegalStateException if the keys file cannot be read or written
+     */
+    public EcKeyRing(boolean enabled, Duration rotationInterval, Duration overlap, Path keysFile) {
+        this.enabled = enabled;
+        this.rotationInterval = rotationInterval;
+        this.overlap = overlap;
+        this.keysFile = keysFile;
+        if (enabled) rotate(Instant.now());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retires keys whose overlap has passed and makes sure there is a signing key for now and one for the next interval.
+     * With a keys file the keys are read from it first and written back if they changed, so the instance that rotates
+     * first generates the keys and all others adopt them.
+     *
+     * @param now current time
+     * @return true if keys were added or removed
+     * @throws IllegalStateException if the keys file cannot be used and no keys are loaded yet
+     */
+    public synchronized boolean rotate(Instant now) {
+        if (!enabled) return false;
+        if (keysFile == null) return swap(rotated(keys, now));
+        try (FileChannel channel = FileChannel.open(lockFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            List<EcKey> stored = Files.exists(keysFile) ? read(keysFile) : List.of();
+            List<EcKey> next = rotated(stored, now);
+            if (next != stored) write(keysFile, next);
+            keysFileModified = Files.getLastModifiedTime(keysFile).toMillis();
+            return swap(next);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            if (keys.isEmpty()) throw new IllegalStateException("Could not load EC keys file " + keysFile, e);
+            LOG.error("Could not rotate EC keys file {}, keeping the current keys", keysFile, e);
+            return false; // keep the current keys
+        }
+    }
+
+    /**
+     * Re-reads the keys file if another instance changed it since the last rotation.
+     */
+    private void refresh() {
+        if (!enabled || keysFile == null) return;
+        try {
+            if (Files.getLastModifiedTime(keysFile).toMillis() == keysFileModified) return;
+        } catch (IOException e) {
+            return;
+        }
+        rotate(Instant.now());
+    }
+
+    /**
+     * Applies the rotation to the given keys.
+     *
+     * @return the rotated keys, or the given list itself if nothing changed
+     */
+    private List<EcKey> rotated(List<EcKey> current, Instant now) {
+        List<EcKey> next = new ArrayList<>();
+        for (EcKey key : current) {
+            if (now.isBefore(key.activeUntil().plus(overlap))) next.add(key);
+        }
+        boolean changed = next.size() != current.size();
+
+        EcKey latest = next.isEmpty() ? null : next.get(next.size() - 1);
+        if (latest == null || !now.isBefore(latest.activeUntil())) {
+            latest = EcKey.generate(now, rotationInterval); // first start or the rotation was not run in time
+            next.add(latest);
+            changed = true;
+        }
+        if (!now.isBefore(latest.activeFrom())) {
+            next.add(EcKey.generate(latest.activeUntil(), rotationInterval)); // publish the successor in advance
+            changed = true;
+        }
+        return changed ? List.copyOf(next) : current;
+    }
+
+    /**
+     * Publishes the given keys.
+     *
+     * @return true if the key ids differ from the published ones
+     */
+    private boolean swap(List<EcKey> next) {
+        boolean changed = !kids(next).equals(kids(keys));
+        keys = next;
+        return changed;
+    }
+
+    private static List<String> kids(List<EcKey> keys) {
+        return keys.stream().map(EcKey::kid).toList();
+    }
+
+    private Path lockFile() {
+        return keysFile.resolveSibling(keysFile.getFileName() + ".lock");
+    }
+
+    /**
+     * Reads the keys file, one "&lt;kid&gt;=&lt;activeFrom&gt;,&lt;activeUntil&gt;,&lt;PKCS#8 private key&gt;,&lt;X.509 public key&gt;"
+     * line per key (keys Base64 encoded), ordered by activeFrom.
+     */
+    private static List<EcKey> read(Path file) throws IOException, GeneralSecurityException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance("EC");
+        List<EcKey> keys = new ArrayList<>();
+        for (String kid : properties.stringPropertyNames()) {
+            String[] fields = properties.getProperty(kid).trim().split(",");
+            if (fields.length != 4) throw new IOException("Malformed EC key " + kid);
+            KeyPair keyPair = new KeyPair(
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(fields[3]))),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(fields[2]))));
+            keys.add(new EcKey(kid, keyPair, Instant.parse(fields[0]), Instant.parse(fields[1])));
+        }
+        keys.sort(Comparator.comparing(EcKey::activeFrom));
+        return List.copyOf(keys);
+    }
+
+    /**
+     * Replaces the keys file atomically. The temporary file is only readable by the owner, as it holds private keys.
+     */
+    private static void write(Path file, List<EcKey> keys) throws IOException {
+        Properties properties = new Properties();
+        Base64.Encoder encoder = Base64.getEncoder();
+        for (EcKey key : keys) {
+            properties.setProperty(key.kid(), key.activeFrom() + "," + key.activeUntil() + ","
+                    + encoder.encodeToString(key.keyPair().getPrivate().getEncoded()) + ","
+                    + encoder.encodeToString(key.keyPair().getPublic().getEncoded()));
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "ES256 signing keys, managed by EcKeyRing");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the key pair that signs new tokens.
+     *
+     * @return the current signing key
+     * @throws IllegalStateException if ES256 signing is disabled or there is no signing key for now
+     */
+    public EcKey getSigningKey() {
+        return getSigningKey(Instant.now());
+    }
+
+    /**
+     * Returns the key pair that signs new tokens at the given time. Rotates once if no key is active.
+     * A key that becomes active within {@link #CLOCK_SKEW} is used as well, since another instance with a clock
+     * slightly ahead may have written it to the keys file; it is already published, so verifiers know it.
+     *
+     * @param now current time
+     * @return the signing key for now
+     * @throws IllegalStateException if ES256 signing is disabled or there is no signing key for now,
+     *                               e.g. because the keys file cannot be read
+     */
+    public EcKey getSigningKey(Instant now) {
+        if (!enabled) throw new IllegalStateException("ES256 signing is disabled (JWT_SIGNING_ALG)");
+        EcKey key = findSigningKey(now);
+        if (key == null) {
+            rotate(now);
+            key = findSigningKey(now);
+        }
+        if (key == null) throw new IllegalStateException("No active EC signing key at " + now);
+        return key;
+    }
+
+    private EcKey findSigningKey(Instant now) {
+        List<EcKey> current = keys;
+        for (EcKey key : current) {
+            if (key.isActive(now)) return key;
+        }
+        Instant skewed = now.plus(CLOCK_SKEW);
+        for (EcKey key : current) {
+            if (key.isActive(skewed)) return key;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the public key for the given key id.
+     *
+     * @param kid key id
+     * @return the public key or null if the key id is unknown or no longer published
+     */
+    public Key getKey(String kid) {
+        for (EcKey key : keys) {
+            if (key.kid().equals(kid)) return key.keyPair().getPublic();
+        }
+        return null;
+    }
+
+    /**
+     * Returns all published keys as JSON Web Keys (RFC 7517).
+     *
+     * @return JWKS document
+     */
+    public Map<String, List<Map<String, String>>> getJwks() {
+        List<Map<String, String>> jwks = new ArrayList<>();
+        for (EcKey key : keys) jwks.add(key.toJwk());
+        return Map.of("keys", jwks);
+    }
+
+    /**
+     * Selects the public key by the "kid" header of an ES256 token.
+     * An unknown key id re-reads the keys file if it changed, in case another instance rotated in the meantime.
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        Key key = getKey(header.getKeyId());
+        if (key == null) {
+            refresh();
+            key = getKey(header.getKeyId());
+        }
+        if (key == null) throw new SignatureException("Unknown key id: " + header.getKeyId());
+        return key;
+    }
+
+    /**
+     * A P-256 key pair that signs in [activeFrom, activeUntil).
+     */
+    public record EcKey(String kid, KeyPair keyPair, Instant activeFrom, Instant activeUntil) {
+
+        static EcKey generate(Instant activeFrom, Duration lifetime) {
+            return new EcKey(UUID.randomUUID().toString(), Keys.keyPairFor(SignatureAlgorithm.ES256),
+                    activeFrom, activeFrom.plus(lifetime));
+        }
+
+        boolean isActive(Instant now) {
+            return !now.isBefore(activeFrom) && now.isBefore(activeUntil);
+        }
+
+        Map<String, String> toJwk() {
+            ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("use", "sig");
+            jwk.put("alg", ALGORITHM);
+            jwk.put("kid", kid);
+            jwk.put("x", coordinate(publicKey.getW().getAffineX()));
+            jwk.put("y", coordinate(publicKey.getW().getAffineY()));
+            return jwk;
+        }
+
+        /**
+         * Encodes a curve coordinate as unsigned 32 byte big-endian value (RFC 7518, section 6.2.1.2).
+         */
+        private static String coordinate(BigInteger value) {
+            byte[] bytes = value.toByteArray();
+            byte[] fixed = new byte[32];
+            int length = Math.min(bytes.length, 32);
+            System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+        }
+    }
+}
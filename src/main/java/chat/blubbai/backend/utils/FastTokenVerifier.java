@@ -0,0 +1,377 @@
+package chat.blubbai.backend.utils;
+
+import chat.blubbai.backend.model.TokenClaims;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * FastTokenVerifier
+ * <p>
+ * Specialised verifier for the HS512 tokens issued by this application. It skips the generic jjwt pipeline
+ * (Base64 strings, Jackson maps, header/claims objects) and works on reused per-thread buffers.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Splits the compact token and checks the HMAC-SHA512 signature with a per-thread {@link Mac} per key.</li>
+ *     <li>Decodes only the claims we issue (sub, uId, tokenType, secretMethod, 2fa_completed, mail_verified, jti, iat, exp)
+ *     straight into {@link TokenClaims}.</li>
+ *     <li>Returns {@link #UNSUPPORTED} for everything it cannot handle (other algorithms, unknown header fields or claims,
+ *     escaped strings, ...). The caller must then fall back to jjwt.</li>
+ *     <li>Returns null only for tokens it understood and found invalid (wrong signature or expired).</li>
+ * </ul>
+ */
+@Component
+public class FastTokenVerifier {
+
+    /**
+     * Marker result for tokens that have to be verified by jjwt. Compare by identity.
+     */
+    public static final TokenClaims UNSUPPORTED = new TokenClaims(null, null, null, null, null, null, null, null);
+
+    private static final int MAX_TOKEN_LENGTH = 2048;
+    private static final int SIGNATURE_LENGTH = 64; // HS512
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+
+    private static final byte[] HEADER_ALG = ascii("alg");
+    private static final byte[] HEADER_KID = ascii("kid");
+    private static final byte[] HEADER_TYP = ascii("typ");
+    private static final byte[] HS512 = ascii("HS512");
+
+    private static final byte[] CLAIM_SUB = ascii("sub");
+    private static final byte[] CLAIM_UID = ascii("uId");
+    private static final byte[] CLAIM_TOKEN_TYPE = ascii("tokenType");
+    private static final byte[] CLAIM_SECRET_METHOD = ascii("secretMethod");
+    private static final byte[] CLAIM_2FA_COMPLETED = ascii("2fa_completed");
+    private static final byte[] CLAIM_MAIL_VERIFIED = ascii("mail_verified");
+    private static final byte[] CLAIM_JTI = ascii("jti");
+    private static final byte[] CLAIM_IAT = ascii("iat");
+    private static final byte[] CLAIM_IAT_MS = ascii("iat_ms");
+    private static final byte[] CLAIM_EXP = ascii("exp");
+
+    private static final int[] BASE64_URL = new int[128];
+
+    static {
+        Arrays.fill(BASE64_URL, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_URL[alphabet.charAt(i)] = i;
+    }
+
+    private final JwtKeyRing keyRing;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public FastTokenVerifier(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    /**
+     * Verifies the token.
+     *
+     * @param token compact JWT
+     * @return verified claims, null if the token is invalid or expired, or {@link #UNSUPPORTED}
+     */
+    public TokenClaims verify(String token) {
+        int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) return UNSUPPORTED;
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) return UNSUPPORTED;
+
+        State state = states.get();
+        byte[] ascii = state.ascii;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7f) return UNSUPPORTED;
+            ascii[i] = (byte) c;
+        }
+
+        // header
+        int headerLength = decodeBase64Url(ascii, 0, firstDot, state.decoded);
+        if (headerLength < 0 || !readHeader(state, headerLength)) return UNSUPPORTED;
+        Key key = keyRing.getKey(state.kid);
+        if (key == null || !MAC_ALGORITHM.equals(key.getAlgorithm())) return UNSUPPORTED;
+
+        // signature
+        if (decodeBase64Url(ascii, secondDot + 1, length, state.signature) != SIGNATURE_LENGTH) return UNSUPPORTED;
+        try {
+            Mac mac = state.mac(key);
+            mac.update(ascii, 0, secondDot);
+            mac.doFinal(state.expected, 0);
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            return UNSUPPORTED;
+        }
+        if (!MessageDigest.isEqual(state.expected, state.signature)) return null;
+
+        // claims
+        int payloadLength = decodeBase64Url(ascii, firstDot + 1, secondDot, state.decoded);
+        if (payloadLength < 0) return UNSUPPORTED;
+        return readClaims(state, payloadLength);
+    }
+
+    // -------------------- Internal Helper Methods --------------------
+
+    /**
+     * Reads the header, only "alg":"HS512", "kid" and "typ" are supported.
+     */
+    private static boolean readHeader(State s, int length) {
+        s.reset(length);
+        s.kid = null;
+        boolean hs512 = false;
+        if (!s.consume('{')) return false;
+        if (!s.consume('}')) {
+            do {
+                if (!s.readString()) return false;
+                int keyStart = s.stringStart, keyEnd = s.stringEnd;
+                if (!s.consume(':') || !s.readString()) return false;
+                if (s.keyEquals(keyStart, keyEnd, HEADER_ALG)) {
+                    hs512 = s.keyEquals(s.stringStart, s.stringEnd, HS512);
+                } else if (s.keyEquals(keyStart, keyEnd, HEADER_KID)) {
+                    s.kid = s.string();
+                } else if (!s.keyEquals(keyStart, keyEnd, HEADER_TYP)) {
+                    return false;
+                }
+            } while (s.consume(','));
+            if (!s.consume('}')) return false;
+        }
+        return hs512 && s.atEnd();
+    }
+
+    /**
+     * Reads the payload into TokenClaims.
+     *
+     * @return claims, null if expired or {@link #UNSUPPORTED}
+     */
+    private static TokenClaims readClaims(State s, int length) {
+        s.reset(length);
+        String subject = null, tokenType = null, secretMethod = null;
+        UUID uId = null;
+        Boolean twoFactorCompleted = null, mailVerified = null;
+        long issuedAt = -1, issuedAtMillis = -1, expiresAt = -1;
+
+        if (!s.consume('{')) return UNSUPPORTED;
+        if (!s.consume('}')) {
+            do {
+                if (!s.readString()) return UNSUPPORTED;
+                int keyStart = s.stringStart, keyEnd = s.stringEnd;
+                if (!s.consume(':')) return UNSUPPORTED;
+                if (s.keyEquals(keyStart, keyEnd, CLAIM_SUB)) {
+                    if (!s.readString()) return UNSUPPORTED;
+                    subject = s.string();
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_TOKEN_TYPE)) {
+                    if (!s.readString()) return UNSUPPORTED;
+                    tokenType = s.string();
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_UID)) {
+                    if (!s.readString()) return UNSUPPORTED; // numeric ids of test tokens go through jjwt
+                    try {
+                        uId = UUID.fromString(s.string());
+                    } catch (IllegalArgumentException e) {
+                        return UNSUPPORTED;
+                    }
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_SECRET_METHOD)) {
+                    if (s.consumeNull()) {
+                        secretMethod = null;
+                    } else if (s.readString()) {
+                        secretMethod = s.string();
+                    } else {
+                        return UNSUPPORTED;
+                    }
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_2FA_COMPLETED)) {
+                    twoFactorCompleted = s.readBoolean();
+                    if (twoFactorCompleted == null) return UNSUPPORTED;
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_MAIL_VERIFIED)) {
+                    mailVerified = s.readBoolean();
+                    if (mailVerified == null) return UNSUPPORTED;
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_JTI)) {
+                    if (!s.readString()) return UNSUPPORTED; // only used for the uniqueness of refresh tokens
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_IAT)) {
+                    issuedAt = s.readNumber();
+                    if (issuedAt < 0) return UNSUPPORTED;
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_IAT_MS)) {
+                    issuedAtMillis = s.readNumber();
+                    if (issuedAtMillis < 0) return UNSUPPORTED;
+                } else if (s.keyEquals(keyStart, keyEnd, CLAIM_EXP)) {
+                    expiresAt = s.readNumber();
+                    if (expiresAt < 0) return UNSUPPORTED;
+                } else {
+                    return UNSUPPORTED;
+                }
+            } while (s.consume(','));
+            if (!s.consume('}')) return UNSUPPORTED;
+        }
+        if (!s.atEnd() || expiresAt < 0) return UNSUPPORTED;
+        if (expiresAt * 1000 <= System.currentTimeMillis()) return null; // expired
+
+        return new TokenClaims(subject, uId, tokenType, secretMethod, twoFactorCompleted, mailVerified,
+                issuedAtMillis >= 0 ? Instant.ofEpochMilli(issuedAtMillis) : issuedAt >= 0 ? Instant.ofEpochSecond(issuedAt) : null,
+                Instant.ofEpochSecond(expiresAt));
+    }
+
+    /**
+     * Decodes unpadded Base64URL from src[from, to) into dst.
+     *
+     * @return number of decoded bytes or -1 if the input is invalid or does not fit into dst
+     */
+    private static int decodeBase64Url(byte[] src, int from, int to, byte[] dst) {
+        int length = to - from;
+        int remainder = length & 3;
+        if (remainder == 1) return -1;
+        int decodedLength = (length >> 2) * 3 + (remainder == 0 ? 0 : remainder - 1);
+        if (decodedLength > dst.length) return -1;
+
+        int out = 0;
+        int i = from;
+        for (int end = from + (length & ~3); i < end; i += 4) {
+            int b0 = BASE64_URL[src[i]], b1 = BASE64_URL[src[i + 1]], b2 = BASE64_URL[src[i + 2]], b3 = BASE64_URL[src[i + 3]];
+            if ((b0 | b1 | b2 | b3) < 0) return -1;
+            int bits = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+            dst[out++] = (byte) (bits >> 16);
+            dst[out++] = (byte) (bits >> 8);
+            dst[out++] = (byte) bits;
+        }
+        if (remainder >= 2) {
+            int b0 = BASE64_URL[src[i]], b1 = BASE64_URL[src[i + 1]];
+            int b2 = remainder == 3 ? BASE64_URL[src[i + 2]] : 0;
+            if ((b0 | b1 | b2) < 0) return -1;
+            int bits = b0 << 18 | b1 << 12 | b2 << 6;
+            dst[out++] = (byte) (bits >> 16);
+            if (remainder == 3) dst[out++] = (byte) (bits >> 8);
+        }
+        return out;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Per-thread buffers, Macs and a minimal reader for the flat JSON objects of our tokens.
+     */
+    private static final class State {
+        final byte[] ascii = new byte[MAX_TOKEN_LENGTH];
+        final byte[] decoded = new byte[MAX_TOKEN_LENGTH];
+        final byte[] signature = new byte[SIGNATURE_LENGTH];
+        final byte[] expected = new byte[SIGNATURE_LENGTH];
+        final Map<Key, Mac> macs = new HashMap<>();
+
+        String kid;
+        int position;
+        int limit;
+        int stringStart;
+        int stringEnd;
+
+        Mac mac(Key key) throws GeneralSecurityException {
+            Mac mac = macs.get(key);
+            if (mac == null) {
+                if (macs.size() >= 8) macs.clear(); // retired keys
+                mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(key);
+                macs.put(key, mac);
+            }
+            return mac;
+        }
+
+        void reset(int length) {
+            position = 0;
+            limit = length;
+        }
+
+        boolean atEnd() {
+            skipWhitespace();
+            return position == limit;
+        }
+
+        boolean consume(char expected) {
+            skipWhitespace();
+            if (position < limit && decoded[position] == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean consumeNull() {
+            skipWhitespace();
+            if (limit - position >= 4 && decoded[position] == 'n' && decoded[position + 1] == 'u'
+                    && decoded[position + 2] == 'l' && decoded[position + 3] == 'l') {
+                position += 4;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a string without escape sequences and stores its bounds.
+         */
+        boolean readString() {
+            if (!consume('"')) return false;
+            int start = position;
+            while (position < limit) {
+                byte b = decoded[position];
+                if (b == '"') {
+                    stringStart = start;
+                    stringEnd = position++;
+                    return true;
+                }
+                if (b == '\\') return false;
+                position++;
+            }
+            return false;
+        }
+
+        String string() {
+            return new String(decoded, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8);
+        }
+
+        boolean keyEquals(int start, int end, byte[] key) {
+            return Arrays.equals(decoded, start, end, key, 0, key.length);
+        }
+
+        Boolean readBoolean() {
+            skipWhitespace();
+            if (limit - position >= 4 && decoded[position] == 't' && decoded[position + 1] == 'r'
+                    && decoded[position + 2] == 'u' && decoded[position + 3] == 'e') {
+                position += 4;
+                return Boolean.TRUE;
+            }
+            if (limit - position >= 5 && decoded[position] == 'f' && decoded[position + 1] == 'a'
+                    && decoded[position + 2] == 'l' && decoded[position + 3] == 's' && decoded[position + 4] == 'e') {
+                position += 5;
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        /**
+         * Reads a non-negative integer (NumericDate).
+         *
+         * @return the value or -1 if there is none
+         */
+        long readNumber() {
+            skipWhitespace();
+            int start = position;
+            long value = 0;
+            while (position < limit && decoded[position] >= '0' && decoded[position] <= '9') {
+                if (position - start >= 15) return -1; // epoch seconds or milliseconds
+                value = value * 10 + (decoded[position++] - '0');
+            }
+            return position > start ? value : -1;
+        }
+
+        private void skipWhitespace() {
+            while (position < limit) {
+                byte b = decoded[position];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') return;
+                position++;
+            }
+        }
+    }
+}
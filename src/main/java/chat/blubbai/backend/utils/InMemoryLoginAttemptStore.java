@@ -0,0 +1,94 @@
+package chat.blubbai.backend.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * InMemoryLoginAttemptStore
+ * <p>
+ * Keeps the failure buckets of every key in a ring of {@link LongAdder}s, so concurrent failures of one key
+ * do not contend on a lock. The number of keys is bounded (random usernames must not exhaust the memory),
+ * the least used keys are evicted first.
+ */
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private final int buckets;
+    private final Cache<String, Window> windows;
+
+    /**
+     * @param buckets number of one-minute buckets, at least the window length
+     * @param maxKeys maximum number of tracked keys
+     */
+    public InMemoryLoginAttemptStore(int buckets, long maxKeys) {
+        this.buckets = buckets;
+        this.windows = Caffeine.newBuilder().maximumSize(maxKeys).build();
+    }
+
+    @Override
+    public void recordFailure(String key, long minute, long nowMillis) {
+        windows.get(key, k -> new Window(buckets)).add(minute, nowMillis);
+    }
+
+    @Override
+    public LoginFailures getFailures(String key, long fromMinute) {
+        Window window = windows.getIfPresent(key);
+        return window == null ? LoginFailures.NONE : new LoginFailures(window.count(fromMinute), window.lastFailureMillis);
+    }
+
+    @Override
+    public void release(String key, long minute) {
+        Window window = windows.getIfPresent(key);
+        if (window != null) window.remove(minute);
+    }
+
+    @Override
+    public void reset(String key) {
+        windows.invalidate(key);
+    }
+
+    @Override
+    public void decay(long beforeMinute) {
+        windows.asMap().values().removeIf(window -> window.lastMinute <= beforeMinute);
+    }
+
+    /**
+     * Ring of one-minute buckets; a bucket is reused when its minute has left the window.
+     */
+    private static final class Window {
+        private final LongAdder[] counts;
+        private final AtomicLongArray minutes;
+        private volatile long lastFailureMillis;
+        private volatile long lastMinute;
+
+        Window(int buckets) {
+            counts = new LongAdder[buckets];
+            for (int i = 0; i < buckets; i++) counts[i] = new LongAdder();
+            minutes = new AtomicLongArray(buckets);
+        }
+
+        void add(long minute, long nowMillis) {
+            int slot = (int) (minute % counts.length);
+            long current = minutes.get(slot);
+            if (current != minute && minutes.compareAndSet(slot, current, minute)) counts[slot].reset();
+            counts[slot].increment();
+            lastFailureMillis = Math.max(lastFailureMillis, nowMillis);
+            lastMinute = Math.max(lastMinute, minute);
+        }
+
+        void remove(long minute) {
+            int slot = (int) (minute % counts.length);
+            if (minutes.get(slot) == minute && counts[slot].sum() > 0) counts[slot].decrement();
+        }
+
+        long count(long fromMinute) {
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (minutes.get(i) > fromMinute) sum += counts[i].sum();
+            }
+            return sum;
+        }
+    }
+}
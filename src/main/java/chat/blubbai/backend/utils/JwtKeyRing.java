@@ -0,0 +1,152 @@
+package chat.blubbai.backend.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * JwtKeyRing
+ * <p>
+ * Holds all HMAC keys that are currently accepted for JWT verification and the one used for signing.
+ * Every key is identified by a key id that is written to the "kid" header of the tokens it signs,
+ * so a secret can be rotated while tokens signed with the previous secret stay valid.
+ *
+ * <h2>Key sources:</h2>
+ * <ul>
+ *     <li><b>JWT_KEYS_FILE</b> (optional): properties file with one "&lt;kid&gt;=&lt;secret&gt;" line per key
+ *     and an "active=&lt;kid&gt;" line selecting the signing key. The file is reloaded by {@link #reload()},
+ *     so keys can be added, activated and retired without a restart.</li>
+ *     <li><b>JWT_SECRET</b>: legacy single secret. It is always accepted under the key id {@value #DEFAULT_KID}
+ *     and used for tokens without "kid" header. It is the signing key if no keys file is configured.</li>
+ * </ul>
+ */
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    public static final String DEFAULT_KID = "default";
+    private static final String ACTIVE_PROPERTY = "active";
+
+    private final Path keysFile;
+    private volatile KeySet keySet;
+    private long keysFileModified = -1;
+
+    /**
+     * Creates the key ring from the environment (JWT_KEYS_FILE and JWT_SECRET).
+     */
+    public JwtKeyRing() {
+        String file = EnvProvider.getEnvOrDefault("JWT_KEYS_FILE", null);
+        this.keysFile = file != null ? Path.of(file) : null;
+        reload();
+    }
+
+    /**
+     * Creates a fixed key ring, e.g. for tests and benchmarks.
+     *
+     * @param secrets   secrets by key id
+     * @param activeKid key id of the signing key
+     */
+    public JwtKeyRing(Map<String, String> secrets, String activeKid) {
+        this.keysFile = null;
+        this.keySet = KeySet.of(secrets, activeKid);
+    }
+
+    /**
+     * Re-reads the key sources if they changed.
+     *
+     * @return true if the set of keys changed
+     */
+    public synchronized boolean reload() {
+        Map<String, String> secrets = new HashMap<>();
+        String legacySecret = EnvProvider.getEnvOrDefault("JWT_SECRET", null);
+        if (legacySecret != null) secrets.put(DEFAULT_KID, legacySecret);
+        String activeKid = legacySecret != null ? DEFAULT_KID : null;
+
+        if (keysFile != null) {
+            try {
+                long modified = Files.getLastModifiedTime(keysFile).toMillis();
+                if (modified == keysFileModified && keySet != null) return false;
+                Properties properties = new Properties();
+                try (Reader reader = Files.newBufferedReader(keysFile, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+                for (String kid : properties.stringPropertyNames()) {
+                    if (!ACTIVE_PROPERTY.equals(kid)) secrets.put(kid, properties.getProperty(kid).trim());
+                }
+                activeKid = properties.getProperty(ACTIVE_PROPERTY, activeKid);
+                keysFileModified = modified;
+            } catch (IOException e) {
+                System.out.println("Could not read JWT keys file " + keysFile + ": " + e.getMessage());
+                if (keySet != null) return false; // keep the current keys
+            }
+        }
+
+        KeySet previous = keySet;
+        try {
+            keySet = KeySet.of(secrets, activeKid);
+        } catch (JwtException e) {
+            if (previous == null) throw e;
+            System.out.println("Ignoring invalid JWT keys: " + e.getMessage());
+            return false;
+        }
+        return previous == null || !previous.secrets().equals(keySet.secrets()) || !Objects.equals(previous.activeKid(), activeKid);
+    }
+
+    /**
+     * Returns the key used to sign new tokens together with its key id.
+     *
+     * @return entry of key id and key
+     * @throws IllegalStateException if no signing key is configured
+     */
+    public Map.Entry<String, Key> getSigningKey() {
+        KeySet current = keySet;
+        Key key = current.activeKid() != null ? current.keys().get(current.activeKid()) : null;
+        if (key == null) throw new IllegalStateException("No JWT signing key configured (JWT_SECRET or JWT_KEYS_FILE)");
+        return Map.entry(current.activeKid(), key);
+    }
+
+    /**
+     * Returns the key for the given key id.
+     *
+     * @param kid key id or null for tokens signed before key ids were introduced
+     * @return the key or null if the key id is unknown
+     */
+    public Key getKey(String kid) {
+        return keySet.keys().get(kid != null ? kid : DEFAULT_KID);
+    }
+
+    /**
+     * Selects the verification key by the "kid" header of the token.
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        Key key = getKey(header.getKeyId());
+        if (key == null) throw new SignatureException("Unknown key id: " + header.getKeyId());
+        return key;
+    }
+
+    /**
+     * Immutable snapshot of the keys, swapped atomically on reload.
+     */
+    private record KeySet(Map<String, String> secrets, Map<String, Key> keys, String activeKid) {
+        static KeySet of(Map<String, String> secrets, String activeKid) {
+            Map<String, Key> keys = new HashMap<>();
+            secrets.forEach((kid, secret) -> keys.put(kid, Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8))));
+            return new KeySet(Map.copyOf(secrets), Map.copyOf(keys), activeKid);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package chat.blubbai.backend.utils;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * KeysetCursor
+ * <p>
+ * Position in a list ordered by (timestamp, id), e.g. chats by (created, cId). The next page continues after
+ * this position with an index range scan, so its cost does not depend on how many rows precede it (unlike OFFSET).
+ * <p>
+ * Clients get the cursor as an opaque base64url string (28 bytes: seconds, nanos, UUID) and must not build it themselves.
+ *
+ * @param position timestamp of the last row of the page
+ * @param id       id of the last row of the page, orders rows with the same timestamp
+ */
+public record KeysetCursor(Instant position, UUID id) {
+
+    private static final int LENGTH = Long.BYTES + Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * @return opaque cursor string
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .putLong(position.getEpochSecond())
+                .putInt(position.getNano())
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param cursor opaque cursor string
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != LENGTH) throw new IllegalArgumentException("Invalid cursor");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Instant position = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        return new KeysetCursor(position, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
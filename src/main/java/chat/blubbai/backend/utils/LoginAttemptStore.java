@@ -0,0 +1,61 @@
+package chat.blubbai.backend.utils;
+
+/**
+ * LoginAttemptStore
+ * <p>
+ * Counts failed logins per key (username or client IP) in one-minute buckets, so the failures of a sliding window
+ * can be summed. Implemented in memory (per instance) and in Postgres (shared by all replicas).
+ */
+public interface LoginAttemptStore {
+
+    /**
+     * Adds a failed login.
+     *
+     * @param key        username or IP key
+     * @param minute     epoch minute of the failure
+     * @param nowMillis  time of the failure
+     */
+    void recordFailure(String key, long minute, long nowMillis);
+
+    /**
+     * Sums the failures of the key in the buckets after the given minute.
+     *
+     * @param key        username or IP key
+     * @param fromMinute first epoch minute that is no longer counted
+     * @return failures and the time of the last one
+     */
+    LoginFailures getFailures(String key, long fromMinute);
+
+    /**
+     * Takes back one failure of the key in the given minute, e.g. a counted attempt that succeeded.
+     * Does nothing if the bucket is empty or has left the window.
+     *
+     * @param key    username or IP key
+     * @param minute epoch minute the failure was counted in
+     */
+    void release(String key, long minute);
+
+    /**
+     * Forgets all failures of the key, e.g. after a successful login.
+     *
+     * @param key username or IP key
+     */
+    void reset(String key);
+
+    /**
+     * Removes all buckets up to the given minute.
+     *
+     * @param beforeMinute last epoch minute that is removed
+     */
+    void decay(long beforeMinute);
+
+    /**
+     * Failures of a key within the window.
+     *
+     * @param count             number of failures
+     * @param lastFailureMillis time of the last failure
+     */
+    record LoginFailures(long count, long lastFailureMillis) {
+        public static final LoginFailures NONE = new LoginFailures(0, 0);
+    }
+}
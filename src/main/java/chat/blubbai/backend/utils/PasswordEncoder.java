@@ -2,18 +2,78 @@ package chat.blubbai.backend.utils;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * PasswordEncoder
+ * <p>
+ * Provides the password encoder of the application.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>New hashes are prefixed with the id of their algorithm ("{bcrypt}" or "{argon2}"),
+ *     the algorithm for new hashes is selected by PASSWORD_ENCODER (default "bcrypt").</li>
+ *     <li>Hashes without prefix (stored before the prefix was introduced) are checked as BCrypt.</li>
+ *     <li>The BCrypt cost is PASSWORD_BCRYPT_COST if set, otherwise it is calibrated at startup to the highest cost
+ *     whose hash takes at most PASSWORD_HASH_TARGET_MS (default 250) on this machine, but at least 10.</li>
+ *     <li>Hashes with another algorithm or a lower cost are replaced on the next successful login
+ *     (see AuthService).</li>
+ * </ul>
+ */
 @Configuration
 public class PasswordEncoder {
 
+    public static final int MIN_BCRYPT_COST = 10;
+    public static final int MAX_BCRYPT_COST = 16;
+
     /**
-     * Bean for BCryptPasswordEncoder
+     * Bean for the DelegatingPasswordEncoder
      * This bean is used for encoding passwords securely.
-     * @return BCryptPasswordEncoder instance.
+     * @return PasswordEncoder instance.
      */
     @Bean
-    public BCryptPasswordEncoder getPasswordEncoder() {
-        return new BCryptPasswordEncoder();
+    public org.springframework.security.crypto.password.PasswordEncoder getPasswordEncoder() {
+        String bcryptCost = EnvProvider.getEnvOrDefault("PASSWORD_BCRYPT_COST", null);
+        int cost = bcryptCost != null
+                ? Integer.parseInt(bcryptCost)
+                : calibrateBCryptCost(Duration.ofMillis(Long.parseLong(EnvProvider.getEnvOrDefault("PASSWORD_HASH_TARGET_MS", "250"))));
+        System.out.println("Using BCrypt cost " + cost);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(
+                EnvProvider.getEnvOrDefault("PASSWORD_ENCODER", "bcrypt"),
+                Map.of("bcrypt", bcrypt, "argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8()));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    /**
+     * Finds the highest BCrypt cost whose hash takes at most the target time.
+     * Every additional cost step doubles the time, so only the minimum cost is measured.
+     *
+     * @param target latency target of one hash
+     * @return cost between {@value #MIN_BCRYPT_COST} and {@value #MAX_BCRYPT_COST}
+     */
+    public static int calibrateBCryptCost(Duration target) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_BCRYPT_COST);
+        String hash = encoder.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // the first rounds include the JIT warmup
+            long start = System.nanoTime();
+            encoder.matches("calibration", hash);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int cost = MIN_BCRYPT_COST;
+        long nanos = best;
+        while (cost < MAX_BCRYPT_COST && nanos * 2 <= target.toNanos()) {
+            cost++;
+            nanos *= 2;
+        }
+        return cost;
     }
 }
@@ -0,0 +1,45 @@
+package chat.blubbai.backend.utils;
+
+import chat.blubbai.backend.persistence.LoginAttemptRepository;
+
+/**
+ * PostgresLoginAttemptStore
+ * <p>
+ * Keeps the failure buckets in the login_attempt table, so all replicas see the same counts.
+ * A failure is one upsert, a check one indexed aggregate over at most one row per minute of the window.
+ */
+public class PostgresLoginAttemptStore implements LoginAttemptStore {
+
+    private final LoginAttemptRepository repository;
+
+    public PostgresLoginAttemptStore(LoginAttemptRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void recordFailure(String key, long minute, long nowMillis) {
+        repository.upsertFailure(key, minute, nowMillis);
+    }
+
+    @Override
+    public LoginFailures getFailures(String key, long fromMinute) {
+        LoginAttemptRepository.FailureSummary summary = repository.sumFailures(key, fromMinute);
+        if (summary == null || summary.getFailures() == null) return LoginFailures.NONE;
+        return new LoginFailures(summary.getFailures(), summary.getLastFailureMillis());
+    }
+
+    @Override
+    public void release(String key, long minute) {
+        repository.decrementFailure(key, minute);
+    }
+
+    @Override
+    public void reset(String key) {
+        repository.deleteByKey(key);
+    }
+
+    @Override
+    public void decay(long beforeMinute) {
+        repository.deleteUpTo(beforeMinute);
+    }
+}
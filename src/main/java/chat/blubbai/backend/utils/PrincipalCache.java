@@ -0,0 +1,66 @@
+package chat.blubbai.backend.utils;
+
+import chat.blubbai.backend.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * PrincipalCache
+ * <p>
+ * Bounded cache of the authenticated users, keyed by the "uId" claim of their access token,
+ * so authenticated requests do not select the account again.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Holds detached users with phone number and role loaded; other associations must not be accessed.</li>
+ *     <li>Invalidated by every write to a user (see UserService and AuthService).</li>
+ *     <li>Entries expire after PRINCIPAL_CACHE_TTL_SECONDS (default 60), which bounds how long
+ *     other instances serve a user changed elsewhere.</li>
+ *     <li>Size bound by PRINCIPAL_CACHE_MAX_SIZE (default 10000).</li>
+ *     <li>Hit ratio and load latency are published as "cache.*" metrics with the tag cache=principals.</li>
+ * </ul>
+ */
+@Component
+public class PrincipalCache {
+
+    public static final String CACHE_NAME = "principals";
+
+    private final Cache<UUID, User> cache = Caffeine.newBuilder()
+            .maximumSize(Long.parseLong(EnvProvider.getEnvOrDefault("PRINCIPAL_CACHE_MAX_SIZE", "10000")))
+            .expireAfterWrite(Duration.ofSeconds(Long.parseLong(EnvProvider.getEnvOrDefault("PRINCIPAL_CACHE_TTL_SECONDS", "60"))))
+            .recordStats()
+            .build();
+
+    /**
+     * Returns the cached user or loads it with the given function. A null result is not cached.
+     *
+     * @param uId    User ID
+     * @param loader loads the user with phone number and role
+     * @return User or null if not found
+     */
+    public User get(UUID uId, Function<UUID, User> loader) {
+        if (uId == null) return null;
+        return cache.get(uId, loader);
+    }
+
+    /**
+     * Removes the user, must be called after every change to it.
+     *
+     * @param uId User ID
+     */
+    public void invalidate(UUID uId) {
+        if (uId != null) cache.invalidate(uId);
+    }
+
+    /**
+     * @return the underlying cache, used to bind its statistics to the meter registry
+     */
+    public Cache<UUID, User> getCache() {
+        return cache;
+    }
+}
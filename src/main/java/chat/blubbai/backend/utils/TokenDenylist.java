@@ -0,0 +1,130 @@
+package chat.blubbai.backend.utils;
+
+import chat.blubbai.backend.service.TokenService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * TokenDenylist
+ * <p>
+ * Revokes all access tokens of a user that were issued up to a point in time, e.g. after the password changed
+ * or the account was deleted. Checked for every request, so it never touches the database.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Holds one issued-at cutoff (epoch milliseconds) per user UUID in a {@link ConcurrentHashMap},
+ *     lookups are O(1) and lock-free.</li>
+ *     <li>Tokens issued at or before the cutoff are denied. Access tokens carry their issue time in milliseconds
+ *     ("iat_ms"), so a token from a login right after the revocation is accepted. Tokens with only "iat"
+ *     (second precision) count as issued at the start of their second.</li>
+ *     <li>An entry is only needed until the last token it denies has expired. Entries are expired by a hashed
+ *     timing wheel with one slot per {@value #TICK_SECONDS} seconds spanning the access token lifetime,
+ *     so the memory is bounded by the revocations of the last 10 minutes.</li>
+ *     <li>The list is held per instance.</li>
+ * </ul>
+ */
+@Component
+public class TokenDenylist {
+
+    private static final long TICK_SECONDS = 10;
+
+    private final long tokenLifetimeSeconds;
+    private final Map<UUID, Long> cutoffs = new ConcurrentHashMap<>();
+    private final Queue<Entry>[] wheel;
+    private long lastTick;
+
+    public TokenDenylist() {
+        this(Duration.ofMillis(TokenService.ACCESS_TOKEN_LIFETIME));
+    }
+
+    /**
+     * @param tokenLifetime maximum lifetime of the tokens that are revoked
+     */
+    @SuppressWarnings("unchecked")
+    public TokenDenylist(Duration tokenLifetime) {
+        this.tokenLifetimeSeconds = tokenLifetime.toSeconds();
+        this.wheel = new Queue[(int) (tokenLifetimeSeconds / TICK_SECONDS) + 2]; // one rotation outlasts every entry
+        for (int i = 0; i < wheel.length; i++) wheel[i] = new ConcurrentLinkedQueue<>();
+        this.lastTick = Instant.now().getEpochSecond() / TICK_SECONDS;
+    }
+
+    /**
+     * Denies all tokens of the user issued up to now.
+     *
+     * @param uId User ID
+     */
+    public void revoke(UUID uId) {
+        revoke(uId, Instant.now());
+    }
+
+    /**
+     * Denies all tokens of the user issued up to the given time.
+     *
+     * @param uId    User ID
+     * @param cutoff latest issued-at that is denied
+     */
+    public void revoke(UUID uId, Instant cutoff) {
+        long millis = cutoff.toEpochMilli();
+        cutoffs.merge(uId, millis, Math::max);
+        long seconds = Math.floorDiv(millis + 999, 1000);
+        long expiryTick = Math.floorDiv(seconds + tokenLifetimeSeconds + TICK_SECONDS - 1, TICK_SECONDS);
+        wheel[(int) (expiryTick % wheel.length)].add(new Entry(uId, millis, expiryTick));
+    }
+
+    /**
+     * Checks whether a token of the user issued at the given time is revoked.
+     *
+     * @param uId      User ID of the token
+     * @param issuedAt issue time of the token
+     * @return true if the token must be rejected
+     */
+    public boolean isDenied(UUID uId, Instant issuedAt) {
+        if (uId == null || issuedAt == null) return false;
+        Long cutoff = cutoffs.get(uId);
+        return cutoff != null && issuedAt.toEpochMilli() <= cutoff;
+    }
+
+    /**
+     * @return number of users with revoked tokens
+     */
+    public int size() {
+        return cutoffs.size();
+    }
+
+    @Scheduled(fixedRate = TICK_SECONDS * 1000)
+    public void expire() {
+        expire(Instant.now());
+    }
+
+    /**
+     * Advances the wheel to the given time and removes the entries whose tokens have all expired.
+     *
+     * @param now current time
+     */
+    public synchronized void expire(Instant now) {
+        long currentTick = now.getEpochSecond() / TICK_SECONDS;
+        long firstTick = Math.max(lastTick + 1, currentTick - wheel.length + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            Iterator<Entry> entries = wheel[(int) (tick % wheel.length)].iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.expiryTick() > currentTick) continue;
+                cutoffs.remove(entry.uId(), entry.cutoff()); // keeps a later cutoff of the same user
+                entries.remove();
+            }
+        }
+        lastTick = Math.max(lastTick, currentTick);
+    }
+
+    private record Entry(UUID uId, long cutoff, long expiryTick) {
+    }
+}
@@ -0,0 +1,51 @@
+package chat.blubbai.backend.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UuidV7
+ * <p>
+ * Generates time-ordered UUIDs (version 7, RFC 9562) for the primary keys. New keys are appended to the right edge
+ * of the B-tree instead of landing on a random page, so inserts touch few pages and the index stays densely packed.
+ *
+ * <h2>Layout:</h2>
+ * <ul>
+ *     <li>48 bit Unix time in milliseconds, version 7, 12 bit counter (rand_a), variant, 62 random bits (rand_b).</li>
+ *     <li>The time and the counter are one {@link AtomicLong}, advanced by a CAS loop without locks.
+ *     Within one millisecond the counter increments, so keys of one instance are strictly increasing.</li>
+ *     <li>The counter of a new millisecond starts at a random value below 2048, leaving at least 2048 keys per millisecond
+ *     before it carries into the time field (the keys stay increasing, the time runs ahead during such a burst).</li>
+ *     <li>If the clock goes backwards, the last time is kept.</li>
+ * </ul>
+ */
+public final class UuidV7 {
+
+    private static final int COUNTER_BITS = 12;
+    private static final AtomicLong STATE = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    /**
+     * @return a new UUIDv7, greater than every UUID generated before by this instance
+     */
+    public static UUID generate() {
+        return generate(System.currentTimeMillis());
+    }
+
+    static UUID generate(long nowMillis) {
+        long next;
+        long previous;
+        do {
+            previous = STATE.get();
+            long start = (nowMillis << COUNTER_BITS) | ThreadLocalRandom.current().nextInt(1 << (COUNTER_BITS - 1));
+            next = Math.max(previous + 1, start);
+        } while (!STATE.compareAndSet(previous, next));
+
+        long msb = ((next >>> COUNTER_BITS) << 16) | 0x7000L | (next & 0xFFFL);
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
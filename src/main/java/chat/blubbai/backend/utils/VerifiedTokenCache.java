@@ -0,0 +1,119 @@
+package chat.blubbai.backend.utils;
+
+import chat.blubbai.backend.model.TokenClaims;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * VerifiedTokenCache
+ * <p>
+ * Bounded cache of already verified tokens. Clients reuse one access token for many calls,
+ * so the signature only has to be checked on the first call.
+ *
+ * <h2>Behavior:</h2>
+ * <ul>
+ *     <li>Keyed by the SHA-256 digest of the compact token (32 bytes instead of the ~300 byte token).</li>
+ *     <li>Every entry expires no later than the "exp" claim of its token.</li>
+ *     <li>Size bound with W-TinyLFU eviction (env TOKEN_CACHE_MAX_SIZE, default 10000).</li>
+ *     <li>Invalid tokens are never cached.</li>
+ *     <li>Hit, miss and eviction counters are published as "cache.*" metrics with the tag cache=verifiedTokens.</li>
+ * </ul>
+ */
+@Component
+public class VerifiedTokenCache {
+
+    public static final String CACHE_NAME = "verifiedTokens";
+
+    private static final long MAX_TTL_NANOS = Duration.ofMinutes(
+            Long.parseLong(EnvProvider.getEnvOrDefault("TOKEN_CACHE_MAX_TTL_MINUTES", "10"))).toNanos();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Cache<ByteBuffer, TokenClaims> cache = Caffeine.newBuilder()
+            .maximumSize(Long.parseLong(EnvProvider.getEnvOrDefault("TOKEN_CACHE_MAX_SIZE", "10000")))
+            .expireAfter(new Expiry<ByteBuffer, TokenClaims>() {
+                @Override
+                public long expireAfterCreate(ByteBuffer key, TokenClaims claims, long currentTime) {
+                    long untilExpiration = Duration.between(Instant.now(), claims.expiresAt()).toNanos();
+                    return Math.max(0, Math.min(untilExpiration, MAX_TTL_NANOS));
+                }
+
+                @Override
+                public long expireAfterUpdate(ByteBuffer key, TokenClaims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(ByteBuffer key, TokenClaims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+    /**
+     * Returns the cached claims of the token or verifies it with the given function.
+     * The verifier is only called on a cache miss, a null result is not cached.
+     *
+     * @param token    compact JWT
+     * @param verifier verifies the token and returns its claims or null if invalid
+     * @return verified claims or null if the token is invalid or expired
+     */
+    public TokenClaims get(String token, Function<String, TokenClaims> verifier) {
+        TokenClaims claims = cache.get(digest(token), key -> verifier.apply(token));
+        if (claims == null || claims.isExpired(Instant.now())) return null;
+        return claims;
+    }
+
+    /**
+     * Returns the cached claims of the token without verifying it.
+     *
+     * @param token compact JWT
+     * @return verified claims or null if the token is not cached or expired
+     */
+    public TokenClaims getIfPresent(String token) {
+        TokenClaims claims = cache.getIfPresent(digest(token));
+        if (claims == null || claims.isExpired(Instant.now())) return null;
+        return claims;
+    }
+
+    /**
+     * Removes all entries, e.g. after the signing keys changed.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the underlying cache, used to bind its statistics to the meter registry
+     */
+    public Cache<ByteBuffer, TokenClaims> getCache() {
+        return cache;
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the token.
+     *
+     * @param token compact JWT
+     * @return digest wrapped as key
+     */
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
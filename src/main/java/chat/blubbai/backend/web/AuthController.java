@@ -2,22 +2,32 @@ package chat.blubbai.backend.web;
 
 import chat.blubbai.backend.model.AccessTokenDTO;
 import chat.blubbai.backend.model.RefreshToken;
+import chat.blubbai.backend.model.TokenClaims;
 import chat.blubbai.backend.model.TokenPairDTO;
+import chat.blubbai.backend.model.TokenValidationDTO;
 import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserCredentials;
 import chat.blubbai.backend.model.enums.ErrorResponse;
 import chat.blubbai.backend.model.enums.Method2FA;
 import chat.blubbai.backend.service.AuthService;
+import chat.blubbai.backend.service.LoginAttemptService;
+import chat.blubbai.backend.service.RefreshTokenService;
+import chat.blubbai.backend.service.TokenService;
 import chat.blubbai.backend.service.UserService;
+import chat.blubbai.backend.utils.EnvProvider;
 import chat.blubbai.backend.utils.ExternalApi;
-import chat.blubbai.backend.utils.TokenUtility;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @AllArgsConstructor
@@ -26,6 +36,12 @@ public class AuthController {
     
     private final AuthService authService;
     private final UserService userService;
+    private final TokenService tokenService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptService loginAttemptService;
+
+    private static final int MAX_BATCH_SIZE = Integer.parseInt(EnvProvider.getEnvOrDefault("TOKEN_BATCH_MAX_SIZE", "100"));
+
     /**
      * POST /api/v1/auth/noa/register
      * <p>
@@ -45,12 +61,12 @@ public class AuthController {
         User created;
         System.out.println(user.getPhoneNumber().getNumber());
         try {
-            if (userService.getUserByUsername(user.getUsername()) != null) return new ResponseEntity<>(ErrorResponse.BAD_USERNAME,HttpStatus.CONFLICT); //Check if username already exists
+            if (userService.existsByUsername(user.getUsername())) return new ResponseEntity<>(ErrorResponse.BAD_USERNAME,HttpStatus.CONFLICT); //Check if username already exists
             if (!ExternalApi.validateMail(user.getEmail())) return new ResponseEntity<>(ErrorResponse.BAD_EMAIL,HttpStatus.BAD_REQUEST); //Check if email is valid
             if (!ExternalApi.validatePhone(user.getPhoneNumber())) return new ResponseEntity<>(ErrorResponse.BAD_PHONE,HttpStatus.BAD_REQUEST); //Check if phone number is valid
             System.out.println("Registering user: " + user.getUsername() + " with email: " + user.getEmail() + " and phone: " + user.getPhoneNumber());
             created = authService.registerUser(user); //Register the user and store in the database and send verification email
-            return new ResponseEntity<>(TokenUtility.generateAccessToken(created, false), HttpStatus.CREATED); //Generate access token for the user and return it with 201 Created status
+            return new ResponseEntity<>(tokenService.generateAccessToken(created, false), HttpStatus.CREATED); //Generate access token for the user and return it with 201 Created status
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -60,25 +76,50 @@ public class AuthController {
      * POST /api/v1/auth/noa/login
      * <p>
      * Authenticates a user with the provided credentials.
+     * The user is loaded with one query, the password is checked on the password hashing executor,
+     * so the request thread is released while BCrypt runs.
+     * Usernames and IPs with too many failed logins are rejected before the user is loaded.
+     * An allowed attempt counts as failed until its password is checked successfully.
      * <p>
      * <b>Request:</b> JSON body with username and password.<br>
      * <b>Response:</b>
      * <ul>
      *     <li>200 OK: List of authentication tokens (access, refresh)</li>
      *     <li>401 Unauthorized: Invalid credentials</li>
+     *     <li>429 Too Many Requests: Too many failed logins for the username or IP, with Retry-After header</li>
+     *     <li>503 Service Unavailable: Too many concurrent logins, with Retry-After header</li>
      *     <li>500 Internal Server Error: On unexpected error</li>
      * </ul>
      */
     @PostMapping("/noa/login")
-    public ResponseEntity<?> login(@Valid @RequestBody final User user) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody final User user, final HttpServletRequest request) {
+        final String ip = request.getRemoteAddr(); // the client behind a trusted proxy (server.forward-headers-strategy)
+        final long now = System.currentTimeMillis();
         try {
-            if (userService.getUserByUsername(user.getUsername()) == null) return new ResponseEntity<>(ErrorResponse.BAD_USERNAME,HttpStatus.UNAUTHORIZED);
-            if (!authService.validatePassword(user.getUsername(), user.getPassword())) return new ResponseEntity<>(ErrorResponse.INVALID_PASSWORD,HttpStatus.UNAUTHORIZED);
-            final User loggedIn = userService.getUserByUsername(user.getUsername());
-            TokenPairDTO tokens = new TokenPairDTO(TokenUtility.generateAccessToken(loggedIn, false),TokenUtility.generateRefreshToken(loggedIn));
-            return new ResponseEntity<>(tokens, HttpStatus.OK);
+            final long retryAfter = loginAttemptService.tryAttempt(user.getUsername(), ip, now);
+            if (retryAfter > 0) return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter + 999) / 1000))
+                    .body(ErrorResponse.TOO_MANY_ATTEMPTS)); // rejected before any query or password hashing
+            final UserCredentials credentials = authService.getCredentials(user.getUsername());
+            if (credentials == null) { // already counted as failed by tryAttempt
+                return CompletableFuture.completedFuture(new ResponseEntity<>(ErrorResponse.BAD_USERNAME,HttpStatus.UNAUTHORIZED));
+            }
+            return authService.matchesPassword(credentials, user.getPassword())
+                    .<ResponseEntity<?>>thenApply(valid -> { // on the auth I/O executor, not a hashing thread
+                        if (!valid) return new ResponseEntity<>(ErrorResponse.INVALID_PASSWORD,HttpStatus.UNAUTHORIZED);
+                        loginAttemptService.loginSucceeded(user.getUsername(), ip, now);
+                        final User loggedIn = credentials.toUser();
+                        TokenPairDTO tokens = new TokenPairDTO(tokenService.generateAccessToken(loggedIn, false),refreshTokenService.createRefreshToken(loggedIn, false));
+                        return new ResponseEntity<>(tokens, HttpStatus.OK);
+                    })
+                    .exceptionally(e -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+        } catch (RejectedExecutionException e) {
+            loginAttemptService.attemptAborted(user.getUsername(), ip, now); // the password was not checked
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ErrorResponse.SERVICE_BUSY)); // hashing executor saturated, fail fast instead of queueing
         } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
@@ -103,10 +144,10 @@ public class AuthController {
      * </ul>
      */
     @GetMapping("/no2fa/2fa")
-    public ResponseEntity<?> get2faCode(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> get2faCode(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
                                         @RequestParam(value = "method", required = false) String method) {
         Method2FA method2fa;
-        User user = userService.getUserByUsername((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal()); // Get the authenticated user from the security context
+        User user = userService.getPrincipal(claims.uId()); // Get the authenticated user by the uId of the verified token claims (cached)
         if (user == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND, HttpStatus.NOT_FOUND); // If user is not found, return 404 Not Found
         if (method == null) { // If no method is provided, check the user's secret method in the database and use it
             method2fa = user.getSecretMethod();
@@ -145,14 +186,14 @@ public class AuthController {
      * </ul>
      */
     @PostMapping("/no2fa/2fa")
-    public ResponseEntity<?> verify2fa(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> verify2fa(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
                                        @RequestParam(value = "code", required = true) String code) {
-        User user = userService.getUserByUsername((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal()); // Get the authenticated user from the security context
+        User user = userService.getPrincipal(claims.uId()); // Get the authenticated user by the uId of the verified token claims (cached)
         if (user == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND,HttpStatus.NOT_FOUND); // If user is not found, return 404 Not Found
         if (user.getSecretMethod() == null) return new ResponseEntity<>(ErrorResponse.METHOD_NOT_SET,HttpStatus.UNAUTHORIZED); // If the user has no secret method set, return 401 Unauthorized
         if (authService.verify2faCode(user, code)) { // Verify the 2FA code using the user's secret method
-            AccessTokenDTO token = TokenUtility.generateAccessToken(user, true); // Generate a new access token for the user
-            RefreshToken refreshToken = TokenUtility.generateRefreshToken(user); // Generate a new refresh token for the user
+            AccessTokenDTO token = tokenService.generateAccessToken(user, true); // Generate a new access token for the user
+            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user, true); // Generate and store a new refresh token for the user
             return new ResponseEntity<>(new TokenPairDTO(token, refreshToken), HttpStatus.OK); // Return the new access token and refresh token with 200 OK status
         } else {
             return new ResponseEntity<>(ErrorResponse.INVALID_2FA,HttpStatus.UNAUTHORIZED); // If the code is invalid, return 401 Unauthorized with an error message
@@ -172,32 +213,48 @@ public class AuthController {
      */
     @PostMapping("/noa/validateToken")
     public ResponseEntity<Boolean> validateToken(@RequestBody final AccessTokenDTO token) {
-        final boolean valid = TokenUtility.validateToken(token);
+        final boolean valid = tokenService.validateToken(token);
         return new ResponseEntity<>(valid, HttpStatus.OK);
     }
 
     /**
-     * POST /api/v1/auth/noa/renewToken
+     * POST /api/v1/auth/noa/validateTokens
      * <p>
-     * Renews a token if valid.
+     * Validates many tokens with one request, e.g. for an API gateway.
      * <p>
-     * <b>Request:</b>
+     * <b>Request:</b> JSON array of tokens (at most TOKEN_BATCH_MAX_SIZE, default 100).<br>
+     * <b>Response:</b>
      * <ul>
-     *     <li>JSON body with token</li>
-     *     <li>Authorization header with valid JWT</li>
+     *     <li>200 OK: One entry per token in request order, with "valid" and the decoded claims of valid tokens</li>
+     *     <li>400 Bad Request: Too many tokens</li>
      * </ul>
+     */
+    @PostMapping("/noa/validateTokens")
+    public ResponseEntity<?> validateTokens(@RequestBody final List<AccessTokenDTO> tokens) {
+        if (tokens.size() > MAX_BATCH_SIZE) return new ResponseEntity<>(ErrorResponse.TOO_MANY_TOKENS, HttpStatus.BAD_REQUEST);
+        final List<TokenValidationDTO> validations = tokenService.validateTokens(tokens);
+        return new ResponseEntity<>(validations, HttpStatus.OK);
+    }
+
+    /**
+     * POST /api/v1/auth/noa/renewToken
+     * <p>
+     * Renews the tokens with a refresh token. The refresh token is rotated: it can only be used once,
+     * using it a second time revokes all refresh tokens of the login.
+     * Unlike the former single-token renewal, no Authorization header is read and both tokens are replaced (see LoginProcedure.MD).
+     * <p>
+     * <b>Request:</b> JSON body with the refresh token, {"token": "&lt;refresh token&gt;"}.<br>
      * <b>Response:</b>
      * <ul>
-     *     <li>200 OK: New token</li>
-     *     <li>401 Unauthorized: If token is invalid or user not found</li>
+     *     <li>200 OK: New access and refresh token, {"accessToken": {"token": ...}, "refreshToken": {"token": ...}}</li>
+     *     <li>401 Unauthorized: If the refresh token is invalid, expired, revoked or was already used</li>
      * </ul>
      */
     @PostMapping("/noa/renewToken")
-    public ResponseEntity<AccessTokenDTO> renewToken(@RequestBody final AccessTokenDTO token, @RequestHeader("Authorization") String authHeader) {
-        if (TokenUtility.getUser(token, userService) == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        final AccessTokenDTO newToken = TokenUtility.renewToken(token, TokenUtility.getTokenFromHeader(authHeader));
-        if (newToken == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        return new ResponseEntity<>(newToken, HttpStatus.OK);
+    public ResponseEntity<TokenPairDTO> renewToken(@RequestBody final AccessTokenDTO token) {
+        final TokenPairDTO tokens = refreshTokenService.renew(token.getToken());
+        if (tokens == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        return new ResponseEntity<>(tokens, HttpStatus.OK);
     }
 
 
@@ -222,7 +279,7 @@ public class AuthController {
     @PatchMapping("/noa/2fa/verifyMail")
     public ResponseEntity<?> verifyMail(@RequestParam(value = "token", required = true) String token) {
         try {
-            User user = TokenUtility.getUserFromMailToken(token, userService); // Get the user from the token
+            User user = tokenService.getUserFromMailToken(token); // Get the user from the token
             if (user == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND, HttpStatus.NOT_FOUND); // If token is invalid, return 401 Unauthorized
             userService.setMailVerified(user); // Set the user's email as verified
 
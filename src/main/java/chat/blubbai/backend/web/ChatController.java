@@ -0,0 +1,218 @@
+package chat.blubbai.backend.web;
+
+import chat.blubbai.backend.model.ChatDTO;
+import chat.blubbai.backend.model.CursorPageDTO;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.model.enums.ErrorResponse;
+import chat.blubbai.backend.service.AiReplyService;
+import chat.blubbai.backend.service.ChatService;
+import chat.blubbai.backend.service.MessageService;
+import chat.blubbai.backend.utils.EnvProvider;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * ChatController
+ * <p>
+ * This controller provides RESTful endpoints to manage the chats of the authenticated user.
+ *
+ * <h2>Endpoints:</h2>
+ * <ul>
+ *     <li><b>GET /api/v1/chat</b> - List the chats, newest first, keyset-paginated.</li>
+ *     <li><b>POST /api/v1/chat</b> - Create a chat.</li>
+ *     <li><b>PATCH /api/v1/chat/{cId}</b> - Rename a chat or opt it out of the AI response cache.</li>
+ *     <li><b>DELETE /api/v1/chat/{cId}</b> - Delete a chat with its messages.</li>
+ *     <li><b>GET /api/v1/chat/{cId}/messages</b> - Read the message history, cursor-paginated in both directions.</li>
+ *     <li><b>POST /api/v1/chat/{cId}/messages</b> - Send a message and stream the AI reply (Server-Sent Events).</li>
+ * </ul>
+ *
+ * <h2>Security & Filters:</h2>
+ * <ul>
+ *     <li>JWT authentication and completed 2FA are required (handled by filter).</li>
+ *     <li>Chats of other users are answered with 404 Not Found.</li>
+ * </ul>
+ */
+@Controller
+@AllArgsConstructor
+@RequestMapping("/api/v1/chat")
+public class ChatController {
+
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_MESSAGE_LENGTH = Integer.parseInt(EnvProvider.getEnvOrDefault("MESSAGE_MAX_LENGTH", "20000"));
+
+    private final ChatService chatService;
+    private final MessageService messageService;
+    private final AiReplyService aiReplyService;
+
+    /**
+     * GET /api/v1/chat
+     * <p>
+     * Lists the chats of the authenticated user, newest first.
+     * <p>
+     * <b>Request:</b>
+     * <ul>
+     *     <li>Query param: cursor (optional, nextCursor of the previous page)</li>
+     *     <li>Query param: limit (optional, default 20, at most CHAT_PAGE_MAX_SIZE)</li>
+     * </ul>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>200 OK: Page with "items" and "nextCursor" (null on the last page)</li>
+     *     <li>400 Bad Request: Invalid cursor</li>
+     * </ul>
+     */
+    @GetMapping
+    public ResponseEntity<?> getChats(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            CursorPageDTO<ChatDTO> page = chatService.getChats(claims.uId(), cursor, limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErrorResponse.BAD_CURSOR, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * POST /api/v1/chat
+     * <p>
+     * Creates a chat for the authenticated user.
+     * <p>
+     * <b>Request:</b> JSON body with title (required) and description.<br>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>201 Created: The created chat</li>
+     *     <li>400 Bad Request: Missing or too long title</li>
+     * </ul>
+     */
+    @PostMapping
+    public ResponseEntity<?> createChat(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                        @RequestBody final ChatDTO chat) {
+        if (!isValidTitle(chat.getTitle())) return new ResponseEntity<>(ErrorResponse.BAD_TITLE, HttpStatus.BAD_REQUEST);
+        ChatDTO created = chatService.createChat(claims.uId(), chat.getTitle(), chat.getDescription());
+        return new ResponseEntity<>(created, HttpStatus.CREATED);
+    }
+
+    /**
+     * PATCH /api/v1/chat/{cId}
+     * <p>
+     * Renames a chat of the authenticated user or changes whether its AI replies use the response cache.
+     * <p>
+     * <b>Request:</b> JSON body with title and description and/or responseCache (true/false).<br>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>200 OK: The updated chat</li>
+     *     <li>400 Bad Request: Too long title, or neither title nor responseCache</li>
+     *     <li>404 Not Found: The user has no such chat</li>
+     * </ul>
+     */
+    @PatchMapping("/{cId}")
+    public ResponseEntity<?> updateChat(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                        @PathVariable("cId") UUID cId,
+                                        @RequestBody final ChatDTO chat) {
+        boolean rename = chat.getTitle() != null || chat.getResponseCache() == null;
+        if (rename && !isValidTitle(chat.getTitle())) return new ResponseEntity<>(ErrorResponse.BAD_TITLE, HttpStatus.BAD_REQUEST);
+        ChatDTO updated = chatService.updateChat(claims.uId(), cId, chat.getTitle(), chat.getDescription(), chat.getResponseCache());
+        if (updated == null) return new ResponseEntity<>(ErrorResponse.CHAT_NOT_FOUND, HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(updated, HttpStatus.OK);
+    }
+
+    /**
+     * DELETE /api/v1/chat/{cId}
+     * <p>
+     * Deletes a chat of the authenticated user with all its messages.
+     * <p>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>204 No Content: Chat deleted</li>
+     *     <li>404 Not Found: The user has no such chat</li>
+     * </ul>
+     */
+    @DeleteMapping("/{cId}")
+    public ResponseEntity<?> deleteChat(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                        @PathVariable("cId") UUID cId) {
+        if (!chatService.deleteChat(claims.uId(), cId)) return new ResponseEntity<>(ErrorResponse.CHAT_NOT_FOUND, HttpStatus.NOT_FOUND);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/v1/chat/{cId}/messages
+     * <p>
+     * Reads one page of the message history of a chat of the authenticated user, in chronological order.
+     * <p>
+     * <b>Request:</b>
+     * <ul>
+     *     <li>Query param: cursor (optional, previousCursor or nextCursor of a page; without cursor the newest messages)</li>
+     *     <li>Query param: direction (optional, "before" (default) for older messages, "after" for newer messages)</li>
+     *     <li>Query param: limit (optional, default 50, at most MESSAGE_PAGE_MAX_SIZE)</li>
+     * </ul>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>200 OK: Page with "items", "previousCursor" (null if there are no older messages) and "nextCursor"</li>
+     *     <li>400 Bad Request: Invalid cursor or direction</li>
+     *     <li>404 Not Found: The user has no such chat</li>
+     * </ul>
+     */
+    @GetMapping("/{cId}/messages")
+    public ResponseEntity<?> getMessages(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                         @PathVariable("cId") UUID cId,
+                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "direction", defaultValue = "before") String direction,
+                                         @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        try {
+            MessageService.Direction dir = MessageService.Direction.valueOf(direction.toUpperCase(Locale.ROOT));
+            CursorPageDTO<MessageDTO> page = messageService.getMessages(claims.uId(), cId, cursor, dir, limit);
+            if (page == null) return new ResponseEntity<>(ErrorResponse.CHAT_NOT_FOUND, HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErrorResponse.BAD_CURSOR, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * POST /api/v1/chat/{cId}/messages
+     * <p>
+     * Stores a message of the authenticated user and streams the AI reply as Server-Sent Events while it is generated.
+     * Closing the connection stops the generation; the reply generated so far is kept.
+     * <p>
+     * <b>Request:</b> JSON body with content (required, at most MESSAGE_MAX_LENGTH characters).<br>
+     * <b>Response:</b>
+     * <ul>
+     *     <li>200 OK: text/event-stream with the events "user" (stored message), "queue" (position while waiting), "token" (text fragment),
+     *     "done" (complete AI message) or "error"</li>
+     *     <li>400 Bad Request: Missing or too long content</li>
+     *     <li>404 Not Found: The user has no such chat</li>
+     *     <li>429 Too Many Requests: The user already has AI_QUEUE_MAX_PER_USER replies waiting</li>
+     * </ul>
+     */
+    @PostMapping("/{cId}/messages")
+    public ResponseEntity<?> sendMessage(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
+                                         @PathVariable("cId") UUID cId,
+                                         @RequestBody final MessageDTO message) {
+        String content = message.getContent();
+        if (content == null || content.isBlank() || content.length() > MAX_MESSAGE_LENGTH) return new ResponseEntity<>(ErrorResponse.BAD_MESSAGE, HttpStatus.BAD_REQUEST);
+        SseEmitter stream;
+        try {
+            stream = aiReplyService.reply(claims.uId(), cId, content);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ErrorResponse.TOO_MANY_REPLIES); // the user's queue is full, other users are not affected
+        }
+        if (stream == null) return new ResponseEntity<>(ErrorResponse.CHAT_NOT_FOUND, HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(stream, HttpStatus.OK);
+    }
+
+    private static boolean isValidTitle(String title) {
+        return title != null && !title.isBlank() && title.length() <= MAX_TITLE_LENGTH;
+    }
+}
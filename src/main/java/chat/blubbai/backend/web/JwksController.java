@@ -0,0 +1,51 @@
+package chat.blubbai.backend.web;
+
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.EnvProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * JwksController
+ *
+ * Publishes the public keys of the ES256 access tokens, so other services can verify tokens locally
+ * instead of calling POST /api/v1/auth/noa/validateToken for every request.
+ *
+ * <h2>Endpoints:</h2>
+ * <ul>
+ *     <li><b>GET /.well-known/jwks.json</b> - JSON Web Key Set of the current, next and recently retired signing keys.</li>
+ * </ul>
+ *
+ * The response may be cached for JWKS_MAX_AGE_SECONDS (default 900). Consumers should refetch it
+ * when they see an unknown "kid".
+ */
+@RestController
+public class JwksController {
+
+    private final TokenService tokenService;
+    private final CacheControl cacheControl;
+
+    public JwksController(TokenService tokenService) {
+        this.tokenService = tokenService;
+        this.cacheControl = CacheControl
+                .maxAge(Duration.ofSeconds(Long.parseLong(EnvProvider.getEnvOrDefault("JWKS_MAX_AGE_SECONDS", "900"))))
+                .cachePublic();
+    }
+
+    /**
+     * GET /.well-known/jwks.json
+     *
+     * <b>Response:</b> 200 OK with the JWKS document, "keys" is empty if ES256 signing is disabled.
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, ?>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .body(tokenService.getJwks());
+    }
+}
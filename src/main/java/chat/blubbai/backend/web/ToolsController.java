@@ -3,7 +3,7 @@ package chat.blubbai.backend.web;
 // ...existing imports...
 
 import chat.blubbai.backend.model.AccessTokenDTO;
-import chat.blubbai.backend.utils.TokenUtility;
+import chat.blubbai.backend.service.TokenService;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import lombok.AllArgsConstructor;
@@ -35,6 +35,8 @@ import java.util.Base64;
 @RequestMapping("/tools")
 public class ToolsController {
 
+    private final TokenService tokenService;
+
     /**
      * GET /tools/health
      * 
@@ -70,7 +72,7 @@ public class ToolsController {
      */
     @GetMapping("/token")
     public ResponseEntity<AccessTokenDTO> getToken() {
-        return new ResponseEntity<>(TokenUtility.createTestToken(), HttpStatus.OK);
+        return new ResponseEntity<>(tokenService.createTestToken(), HttpStatus.OK);
     }
 
     /**
@@ -2,7 +2,9 @@ package chat.blubbai.backend.web;
 
 import chat.blubbai.backend.model.enums.ErrorResponse;
 import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.TokenClaims;
 import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.UserProfileDTO;
 import chat.blubbai.backend.model.enums.Method2FA;
 import chat.blubbai.backend.service.AuthService;
 import chat.blubbai.backend.service.UserService;
@@ -12,7 +14,6 @@ import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,20 +24,21 @@ import java.util.Objects;
 /**
  * UserController
  * <p>
- * This controller provides RESTful endpoints for user management, authentication, registration,
- * profile updates, two-factor authentication (2FA), and token operations.
+ * This controller provides RESTful endpoints for user management and profile updates.
+ * Registration, login, two-factor authentication (2FA) and token operations are served by the AuthController.
  *
  * <h2>Endpoints:</h2>
  * <ul>
  *     <li><b>GET /api/v1/user</b> - Retrieve the authenticated user's profile.</li>
- *     <li><b>POST /api/v1/user/noa/register</b> - Register a new user.</li>
- *     <li><b>POST /api/v1/user/noa/login</b> - Authenticate a user and obtain tokens.</li>
  *     <li><b>PUT /api/v1/user/update</b> - Update the authenticated user's profile.</li>
  *     <li><b>DELETE /api/v1/user/delete</b> - Delete the authenticated user.</li>
- *     <li><b>GET /api/v1/user/no2fa/2fa</b> - Initiate or manage 2FA for the user.</li>
- *     <li><b>POST /api/v1/user/no2fa/2fa</b> - Verify a submitted 2FA code.</li>
- *     <li><b>POST /api/v1/user/noa/validateToken</b> - Validate a token.</li>
- *     <li><b>POST /api/v1/user/noa/renewToken</b> - Renew a token.</li>
+ *     <li><b>POST /api/v1/auth/noa/register</b> - Register a new user (AuthController).</li>
+ *     <li><b>POST /api/v1/auth/noa/login</b> - Authenticate a user and obtain tokens (AuthController).</li>
+ *     <li><b>GET /api/v1/auth/no2fa/2fa</b> - Initiate or manage 2FA for the user (AuthController).</li>
+ *     <li><b>POST /api/v1/auth/no2fa/2fa</b> - Verify a submitted 2FA code (AuthController).</li>
+ *     <li><b>POST /api/v1/auth/noa/validateToken</b> - Validate a token (AuthController).</li>
+ *     <li><b>POST /api/v1/auth/noa/renewToken</b> - Exchange a refresh token for a new access and refresh token;
+ *     no Authorization header, responds with a TokenPairDTO (AuthController).</li>
  * </ul>
  *
  * <h2>Security & Filters:</h2>
@@ -73,10 +75,10 @@ public class UserController {
      * </ul>
      */
     @GetMapping
-    public ResponseEntity<?> getUser(@RequestHeader("Authorization") String authHeader){
-        User user = userService.getUserByUsername((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal()); // get the username from the security context
-        if (user == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND,HttpStatus.NOT_FOUND); // if user is not found, return 404
-        return new ResponseEntity<>(user, HttpStatus.OK); // return the user object with 200 OK
+    public ResponseEntity<?> getUser(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims){
+        UserProfileDTO profile = userService.getProfile(claims.uId()); // get the profile by the uId of the verified token claims (cached)
+        if (profile == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND,HttpStatus.NOT_FOUND); // if user is not found, return 404
+        return new ResponseEntity<>(profile, HttpStatus.OK); // return the profile with 200 OK
     }
 
     /**
@@ -100,24 +102,19 @@ public class UserController {
      */
     // TODO: 2FA übergabe verbessern -> wie STRING in ENUM umwandeln
     @PutMapping("/update")
-    public ResponseEntity<?> updateUser(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> updateUser(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims,
                                            @Valid @RequestBody final User user,
                                            @RequestParam(value = "oldPassword", required = true) String oldPassword) {
-        User loggedIn = userService.getUserByUsername((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        User loggedIn = userService.getPrincipal(claims.uId());
         if (!authService.validatePassword(loggedIn.getUsername(), oldPassword)) return new ResponseEntity<>(ErrorResponse.INVALID_PASSWORD, HttpStatus.UNAUTHORIZED);
         try {
             if (!ExternalApi.validateMail(user.getEmail())) return new ResponseEntity<>(ErrorResponse.BAD_EMAIL,HttpStatus.BAD_REQUEST);
             if (!ExternalApi.validatePhone(user.getPhoneNumber())) return new ResponseEntity<>(ErrorResponse.BAD_PHONE,HttpStatus.BAD_REQUEST);
-            loggedIn.setEmail(user.getEmail());
-            loggedIn.setPhoneNumber(user.getPhoneNumber());
             if (user.getPassword() != null) userService.updatePassword(loggedIn, user.getPassword());
-            if (!Objects.equals(user.getSecretMethod(), Method2FA.AUTHENTICATOR)) {
-                loggedIn.setSecretMethod(null);
-            }else {
-                loggedIn.setSecretMethod(user.getSecretMethod());
-            }
-            userService.updateUser(loggedIn);
-            return new ResponseEntity<>(loggedIn, HttpStatus.OK);
+            Method2FA secretMethod = Objects.equals(user.getSecretMethod(), Method2FA.AUTHENTICATOR) ? Method2FA.AUTHENTICATOR : null;
+            UserProfileDTO updated = userService.updateUser(loggedIn.getUUID(), user.getEmail(), user.getPhoneNumber(), secretMethod);
+            if (updated == null) return new ResponseEntity<>(ErrorResponse.USER_NOT_FOUND, HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(updated, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -137,8 +134,8 @@ public class UserController {
      * </ul>
      */
     @DeleteMapping("/delete")
-    public ResponseEntity<Void> deleteUser(@RequestHeader("Authorization") String authHeader) {
-        User loggedIn = userService.getUserByUsername((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    public ResponseEntity<Void> deleteUser(@RequestAttribute(TokenClaims.REQUEST_ATTRIBUTE) TokenClaims claims) {
+        User loggedIn = userService.getPrincipal(claims.uId());
         final boolean removed = userService.deleteUser(loggedIn);
         if (removed) return ResponseEntity.noContent().build();
         else return ResponseEntity.notFound().build();
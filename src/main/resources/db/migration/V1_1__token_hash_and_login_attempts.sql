@@ -0,0 +1,57 @@
+-- Columns and tables added to the entities after the baseline. Runs on new and on baselined databases alike.
+
+-- Refresh tokens are looked up by the SHA-256 digest of the token instead of the token itself
+alter table refresh_tokens add column token_hash bytea;
+update refresh_tokens set token_hash = sha256(convert_to(token, 'UTF8'));
+alter table refresh_tokens alter column token_hash set not null;
+alter table refresh_tokens add constraint refresh_tokens_token_hash_key unique (token_hash);
+
+-- Every existing token starts its own family
+alter table refresh_tokens add column family_id uuid;
+update refresh_tokens set family_id = id;
+alter table refresh_tokens alter column family_id set not null;
+
+-- Existing tokens do not carry a completed 2FA login, so their sessions have to pass 2FA again
+alter table refresh_tokens add column two_factor_completed boolean not null default false;
+alter table refresh_tokens alter column two_factor_completed drop default;
+
+-- The unique constraint on the whole token (and its index) is replaced by the one on token_hash.
+-- Hibernate generated its name, so it is looked up instead of dropped by name.
+do $$
+declare
+    c record;
+begin
+    for c in
+        select con.conname
+        from pg_constraint con
+        join pg_attribute att on att.attrelid = con.conrelid and att.attnum = any (con.conkey)
+        where con.conrelid = 'refresh_tokens'::regclass
+          and con.contype = 'u'
+          and array_length(con.conkey, 1) = 1
+          and att.attname = 'token'
+    loop
+        execute format('alter table refresh_tokens drop constraint %I', c.conname);
+    end loop;
+    for c in
+        select cls.relname
+        from pg_index idx
+        join pg_class cls on cls.oid = idx.indexrelid
+        join pg_attribute att on att.attrelid = idx.indrelid and att.attnum = idx.indkey[0]
+        where idx.indrelid = 'refresh_tokens'::regclass
+          and idx.indisunique
+          and idx.indnatts = 1
+          and att.attname = 'token'
+    loop
+        execute format('drop index %I', c.relname);
+    end loop;
+end
+$$;
+
+-- Failed logins per key and minute, see LoginAttemptService
+create table login_attempt (
+    id                  varchar(255) not null primary key,
+    attempt_key         varchar(255) not null,
+    minute              bigint       not null,
+    failures            bigint       not null,
+    last_failure_millis bigint       not null
+);
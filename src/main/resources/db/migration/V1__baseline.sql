@@ -0,0 +1,54 @@
+-- Schema as created by Hibernate (ddl-auto=update) before the migrations took over.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate), so it only runs on empty databases.
+-- Everything added since then (token hashes, token families, login attempts) lives in V1_1, which runs on both.
+
+create table role (
+    r_id        integer generated by default as identity primary key,
+    name        varchar(255),
+    description varchar(255)
+);
+
+create table phone_number (
+    pn_id   integer generated by default as identity primary key,
+    country varchar(255),
+    number  varchar(255)
+);
+
+create table account (
+    uuid          uuid                        not null primary key,
+    username      varchar(255)                not null unique,
+    email         varchar(255)                not null unique,
+    password      varchar(255)                not null,
+    secret        varchar(255)                not null unique,
+    secret_method varchar(255),
+    created_at    timestamp(6) with time zone not null,
+    updated_at    timestamp(6) with time zone not null,
+    mail_verified boolean                     not null,
+    r_id          integer references role (r_id),
+    pn_id         integer unique references phone_number (pn_id)
+);
+
+create table chat (
+    c_id        uuid                        not null primary key,
+    title       varchar(255)                not null,
+    description varchar(255),
+    created     timestamp(6) with time zone not null,
+    uuid        uuid                        not null references account (uuid)
+);
+
+create table message (
+    m_id      uuid                        not null primary key,
+    content   varchar(255)                not null,
+    author    varchar(255)                not null,
+    send_date timestamp(6) with time zone not null,
+    c_id      uuid                        not null references chat (c_id)
+);
+
+create table refresh_tokens (
+    id         uuid                        not null primary key,
+    uuid       uuid                        not null references account (uuid),
+    token      text                        not null unique,
+    expires_at timestamp(6) with time zone not null,
+    issued_at  timestamp(6) with time zone not null,
+    revoked    boolean                     not null
+);
@@ -0,0 +1,18 @@
+-- Indexes for the hot queries. Hibernate (ddl-auto=update) only created primary keys, unique constraints and foreign keys.
+
+-- Chats of a user, newest first, keyset on (created, c_id)
+create index if not exists chat_user_created_idx on chat (uuid, created, c_id);
+
+-- Messages of a chat in send order, keyset on (send_date, m_id)
+create index if not exists message_chat_send_date_idx on message (c_id, send_date, m_id);
+
+-- Usernames are unique regardless of case. Fails if an existing database holds case variants of one username.
+create unique index if not exists account_username_lower_idx on account (lower(username));
+
+-- Revocation by user (password change) and by family (reuse detection) only touch live tokens
+create index if not exists refresh_tokens_user_live_idx on refresh_tokens (uuid) where not revoked;
+create index if not exists refresh_tokens_family_live_idx on refresh_tokens (family_id) where not revoked;
+
+-- Failed logins of a key in the window, and the decay of old buckets
+create index if not exists login_attempt_key_minute_idx on login_attempt (attempt_key, minute);
+create index if not exists login_attempt_minute_idx on login_attempt (minute);
@@ -0,0 +1,9 @@
+-- phone_number and role get their ids from pooled sequences (allocationSize 50), so their inserts can be batched.
+-- Hibernate reserves the block [value - 49, value] per nextval, so the sequences start 50 above the highest id.
+-- The identity columns are kept, Hibernate always sends the id.
+
+create sequence if not exists phone_number_seq increment by 50;
+select setval('phone_number_seq', coalesce((select max(pn_id) from phone_number), 0) + 50, false);
+
+create sequence if not exists role_seq increment by 50;
+select setval('role_seq', coalesce((select max(r_id) from role), 0) + 50, false);
@@ -0,0 +1,2 @@
+-- AI replies are much longer than 255 characters
+alter table message alter column content type text;
@@ -0,0 +1,11 @@
+-- Chats can opt out of the AI response cache
+alter table chat add column response_cache boolean not null default true;
+
+-- Shared tier of the AI response cache (AI_CACHE_STORE=postgres)
+create table ai_response (
+    key_hash varchar(64)                 not null primary key,
+    content  text                        not null,
+    created  timestamp(6) with time zone not null
+);
+
+create index ai_response_created_idx on ai_response (created);
@@ -0,0 +1,2 @@
+-- Refresh tokens are only stored as their digest (token_hash), the raw token is handed out once at issue time
+alter table refresh_tokens drop column token;
@@ -0,0 +1,140 @@
+package chat.blubbai.backend.aiTests;
+
+import chat.blubbai.backend.ai.BatchAiProvider;
+import chat.blubbai.backend.ai.BatchingAiProvider;
+import chat.blubbai.backend.ai.StubAiProvider;
+import chat.blubbai.backend.ai.StubAiServer;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.enums.Sender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingAiProviderTests {
+
+    private static StubAiProvider stub(int tokens) throws IOException {
+        return new StubAiProvider(new StubAiServer(0, Duration.ZERO, tokens, 0), Duration.ofSeconds(10), Duration.ofSeconds(5));
+    }
+
+    private static List<MessageDTO> history(String content) {
+        return List.of(new MessageDTO(UUID.randomUUID(), content, Sender.USER, Instant.now()));
+    }
+
+    private static String reply(BatchingAiProvider provider, String content) throws Exception {
+        StringBuilder reply = new StringBuilder();
+        provider.generate(history(content), reply::append);
+        return reply.toString();
+    }
+
+    /**
+     * Tests that concurrent replies are sent as one batch and every reply receives only its own tokens.
+     */
+    @Test
+    @DisplayName("Concurrent replies are batched and demultiplexed")
+    void testGenerate_batched() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (BatchingAiProvider provider = new BatchingAiProvider(stub(3), 4, Duration.ofSeconds(2), registry);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> replies = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String content = "reply " + i;
+                replies.add(clients.submit(() -> reply(provider, content)));
+            }
+
+            for (int i = 0; i < 4; i++) assertEquals("reply " + i + " reply", replies.get(i).get());
+            assertEquals(1, registry.get("ai.batch.size").summary().count());
+            assertEquals(4.0, registry.get("ai.batch.size").summary().totalAmount());
+            assertEquals(4, registry.get("ai.batch.queue.wait").timer().count());
+        }
+    }
+
+    /**
+     * Tests that a batch is sent after the maximum wait even if it is not full.
+     */
+    @Test
+    @DisplayName("Partial batch is sent after the maximum wait")
+    void testGenerate_maxWait() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (BatchingAiProvider provider = new BatchingAiProvider(stub(2), 8, Duration.ofMillis(50), registry)) {
+            assertEquals("alone alone", reply(provider, "alone"));
+            assertEquals(1.0, registry.get("ai.batch.size").summary().totalAmount());
+        }
+    }
+
+    /**
+     * Tests that a disconnected client does not stop the other replies of its batch.
+     */
+    @Test
+    @DisplayName("Abandoned reply does not affect its batch")
+    void testGenerate_abandoned() throws Exception {
+        try (BatchingAiProvider provider = new BatchingAiProvider(stub(3), 2, Duration.ofSeconds(2), new SimpleMeterRegistry());
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> abandoned = clients.submit(() -> {
+                provider.generate(history("gone"), token -> {
+                    throw new UncheckedIOException(new IOException("client gone"));
+                });
+                return null;
+            });
+            Future<String> kept = clients.submit(() -> reply(provider, "kept"));
+
+            assertEquals("kept kept kept", kept.get());
+            assertInstanceOf(UncheckedIOException.class, assertThrows(Exception.class, abandoned::get).getCause());
+        }
+    }
+
+    /**
+     * Tests that a reply cancelled while its batch is being collected or joined never leaves an upstream call running.
+     * The client is cancelled at random points around the dispatch of its batch.
+     */
+    @Test
+    @DisplayName("Reply cancelled during collection cancels its upstream call")
+    void testGenerate_cancelledWhileCollected() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger stopped = new AtomicInteger();
+        BatchAiProvider upstream = new BatchAiProvider() {
+            @Override
+            public void generate(List<MessageDTO> history, Consumer<String> onToken) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void generateBatch(List<List<MessageDTO>> histories, BatchListener listener) throws InterruptedException {
+                started.incrementAndGet();
+                try {
+                    Thread.sleep(Long.MAX_VALUE); // until cancelled
+                } finally {
+                    stopped.incrementAndGet();
+                }
+            }
+        };
+        try (BatchingAiProvider provider = new BatchingAiProvider(upstream, 4, Duration.ofMillis(2), new SimpleMeterRegistry());
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                Future<String> client = clients.submit(() -> reply(provider, "gone"));
+                TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(3000));
+                client.cancel(true);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (stopped.get() != started.get() && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(started.get(), stopped.get(), "upstream calls left running");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package chat.blubbai.backend.aiTests;
+
+import chat.blubbai.backend.ai.GenerationScheduler;
+import chat.blubbai.backend.ai.GenerationScheduler.Ticket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenerationSchedulerTests {
+
+    private static final UUID HEAVY = UUID.randomUUID();
+    private static final UUID LIGHT = UUID.randomUUID();
+
+    private final BlockingQueue<String> grants = new LinkedBlockingQueue<>();
+    private final Map<String, Ticket> tickets = new HashMap<>();
+
+    /**
+     * Queues a ticket and waits for its grant on a virtual thread, which reports the name of the ticket.
+     */
+    private void enqueue(GenerationScheduler scheduler, UUID uId, int weight, String name, BlockingQueue<Integer> positions) {
+        Ticket ticket = scheduler.enqueue(uId, weight);
+        assertNotNull(ticket);
+        tickets.put(name, ticket);
+        Thread.ofVirtual().start(() -> {
+            try {
+                ticket.await(positions::add);
+                grants.add(name);
+            } catch (InterruptedException ignored) {
+                // test ended
+            }
+        });
+    }
+
+    /**
+     * Ends the generation of the ticket and returns the name of the next granted one.
+     */
+    private String release(String name) throws InterruptedException {
+        tickets.get(name).close();
+        return grants.poll(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that a user with one prompt is served after one round, not after the backlog of a heavy user.
+     */
+    @Test
+    @DisplayName("Light user overtakes the backlog of a heavy user")
+    void testEnqueue_fairness() throws InterruptedException {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10, 1, Map.of());
+        BlockingQueue<Integer> lightPositions = new LinkedBlockingQueue<>();
+        enqueue(scheduler, HEAVY, 1, "h0", new LinkedBlockingQueue<>());
+        assertEquals("h0", grants.poll(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) enqueue(scheduler, HEAVY, 1, "h" + i, new LinkedBlockingQueue<>());
+        enqueue(scheduler, LIGHT, 1, "l1", lightPositions);
+
+        assertEquals(2, lightPositions.poll(5, TimeUnit.SECONDS));
+        assertEquals("h1", release("h0"));
+        assertEquals(1, lightPositions.poll(5, TimeUnit.SECONDS));
+        assertEquals("l1", release("h1"));
+        assertEquals("h2", release("l1"));
+        assertEquals(1, scheduler.getRunning());
+        assertEquals(2, scheduler.getWaiting());
+    }
+
+    /**
+     * Tests that a user with twice the weight starts two generations per round.
+     */
+    @Test
+    @DisplayName("Generations are granted in proportion to the role weight")
+    void testEnqueue_weights() throws InterruptedException {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10, 1, Map.of("premium", 2));
+        int premium = scheduler.weightOf("PREMIUM");
+        assertEquals(2, premium);
+        assertEquals(1, scheduler.weightOf(null));
+
+        enqueue(scheduler, HEAVY, premium, "p0", new LinkedBlockingQueue<>());
+        assertEquals("p0", grants.poll(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) enqueue(scheduler, HEAVY, premium, "p" + i, new LinkedBlockingQueue<>());
+        for (int i = 1; i <= 3; i++) enqueue(scheduler, LIGHT, 1, "u" + i, new LinkedBlockingQueue<>());
+
+        assertEquals("p1", release("p0"));
+        assertEquals("p2", release("p1"));
+        assertEquals("u1", release("p2"));
+        assertEquals("p3", release("u1"));
+        assertEquals("p4", release("p3"));
+        assertEquals("u2", release("p4"));
+        assertEquals("u3", release("u2"));
+    }
+
+    /**
+     * Tests the global cap, the per-user queue limit and that an abandoned ticket frees its place.
+     */
+    @Test
+    @DisplayName("Concurrency and queue length are capped")
+    void testEnqueue_limits() throws InterruptedException {
+        GenerationScheduler scheduler = new GenerationScheduler(2, 2, 1, Map.of());
+        enqueue(scheduler, HEAVY, 1, "h0", new LinkedBlockingQueue<>());
+        enqueue(scheduler, HEAVY, 1, "h1", new LinkedBlockingQueue<>());
+        enqueue(scheduler, HEAVY, 1, "h2", new LinkedBlockingQueue<>());
+        enqueue(scheduler, HEAVY, 1, "h3", new LinkedBlockingQueue<>());
+        assertNull(scheduler.enqueue(HEAVY, 1));
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(2, scheduler.getWaiting());
+
+        tickets.get("h2").close(); // client gone while waiting
+        tickets.get("h2").close(); // idempotent
+        assertEquals(1, scheduler.getWaiting());
+        assertNotNull(grants.poll(5, TimeUnit.SECONDS));
+        assertNotNull(grants.poll(5, TimeUnit.SECONDS));
+        assertEquals("h3", release("h0"));
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(0, scheduler.getWaiting());
+    }
+}
@@ -0,0 +1,87 @@
+package chat.blubbai.backend.aiTests;
+
+import chat.blubbai.backend.ai.StubAiProvider;
+import chat.blubbai.backend.ai.StubAiServer;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.enums.Sender;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpAiProviderTests {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static List<MessageDTO> history(String content) {
+        return List.of(new MessageDTO(UUID.randomUUID(), content, Sender.USER, Instant.now()));
+    }
+
+    /**
+     * Tests that the tokens of the stub are streamed in order and that the reply is deterministic.
+     */
+    @Test
+    @DisplayName("Stub reply is streamed token by token")
+    void testGenerate_stub() throws Exception {
+        try (StubAiProvider provider = new StubAiProvider(new StubAiServer(0, Duration.ZERO, 5, 0), Duration.ofSeconds(10), CONNECT_TIMEOUT)) {
+            List<String> first = new ArrayList<>();
+            provider.generate(history("hello stub"), first::add);
+            List<String> second = new ArrayList<>();
+            provider.generate(history("hello stub"), second::add);
+
+            assertEquals(List.of("hello", " stub", " hello", " stub", " hello"), first);
+            assertEquals(first, second);
+        }
+    }
+
+    /**
+     * Tests that an interrupt stops a running reply at once instead of waiting for the next token.
+     */
+    @Test
+    @DisplayName("Interrupt cancels the reply")
+    void testGenerate_interrupt() throws Exception {
+        try (StubAiProvider provider = new StubAiProvider(new StubAiServer(0, Duration.ZERO, 100, 1), Duration.ofSeconds(60), CONNECT_TIMEOUT)) {
+            CountDownLatch firstToken = new CountDownLatch(1);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread generator = Thread.ofVirtual().start(() -> {
+                try {
+                    provider.generate(history("slow"), token -> firstToken.countDown());
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+
+            assertTrue(firstToken.await(5, TimeUnit.SECONDS));
+            generator.interrupt();
+            generator.join(Duration.ofSeconds(2));
+
+            assertFalse(generator.isAlive());
+            assertInstanceOf(InterruptedException.class, failure.get());
+        }
+    }
+
+    /**
+     * Tests that the deadline covers the whole reply, not only the response headers.
+     */
+    @Test
+    @DisplayName("Deadline aborts a slow reply")
+    void testGenerate_deadline() throws Exception {
+        try (StubAiProvider provider = new StubAiProvider(new StubAiServer(0, Duration.ZERO, 100, 2), Duration.ofMillis(500), CONNECT_TIMEOUT)) {
+            List<String> tokens = new ArrayList<>();
+
+            assertThrows(HttpTimeoutException.class, () -> provider.generate(history("slow"), tokens::add));
+            assertFalse(tokens.isEmpty());
+            assertTrue(tokens.size() < 100);
+        }
+    }
+}
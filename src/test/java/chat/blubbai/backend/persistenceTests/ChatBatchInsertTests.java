@@ -0,0 +1,62 @@
+package chat.blubbai.backend.persistenceTests;
+
+import chat.blubbai.backend.model.Chat;
+import chat.blubbai.backend.model.Message;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.enums.Sender;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ChatBatchInsertTests {
+
+    private static final int MESSAGES = 500;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Tests that a chat cascading 500 messages is inserted with one statement per JDBC batch of 50,
+     * not one per row.
+     */
+    @Test
+    @DisplayName("Messages of a chat are inserted in JDBC batches")
+    void testBatchInsert() {
+        User user = new User();
+        user.setUsername("tester");
+        user.setEmail("tester@blubbai.chat");
+        user.setPassword("hash");
+        entityManager.persist(user);
+        entityManager.flush();
+
+        Chat chat = new Chat();
+        chat.setTitle("Batch");
+        chat.setUser(user);
+        chat.setMessages(new ArrayList<>());
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = new Message();
+            message.setContent("Message " + i);
+            message.setAuthor(i % 2 == 0 ? Sender.USER : Sender.AI);
+            message.setChat(chat);
+            chat.getMessages().add(message);
+        }
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        entityManager.persist(chat);
+        entityManager.flush();
+
+        assertEquals(MESSAGES + 1, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 1 + MESSAGES / 50,
+                "statements: " + statistics.getPrepareStatementCount()); // chat + at most one per batch of 50 messages
+    }
+}
@@ -0,0 +1,147 @@
+package chat.blubbai.backend.persistenceTests;
+
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.persistence.ChatRepository;
+import chat.blubbai.backend.persistence.LoginAttemptRepository;
+import chat.blubbai.backend.persistence.MessageRepository;
+import chat.blubbai.backend.persistence.RefreshTokenRepository;
+import chat.blubbai.backend.persistence.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the migrations to a Postgres container and checks that the hot repository queries are answered by the index
+ * designed for them. The SQL Hibernate generates for a repository call is recorded and explained as generic plan,
+ * so the test follows the queries when they change.
+ * Sequential scans are disabled for the session, so the planner only falls back to one if no index matches
+ * (with a few rows it would always prefer them). Skipped without Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=chat.blubbai.backend.persistenceTests.QueryPlanTests$SqlRecorder"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class QueryPlanTests {
+
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final Pattern PARAMETER = Pattern.compile("\\?");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private LoginAttemptRepository loginAttemptRepository;
+
+    @BeforeEach
+    void disableSeqScan() {
+        jdbcTemplate.execute("set enable_seqscan = off"); // same connection as the test transaction
+    }
+
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of("account_username_lower_idx", (RepositoryCall) t -> t.userRepository.findByUsername("tester")),
+                Arguments.of("account_username_lower_idx", (RepositoryCall) t -> t.userRepository.findCredentialsByUsername("tester")),
+                Arguments.of("account_username_lower_idx", (RepositoryCall) t -> t.userRepository.existsByUsername("tester")),
+                Arguments.of("account_pkey", (RepositoryCall) t -> t.userRepository.findCredentialsByUUID(ID)),
+                Arguments.of("refresh_tokens_token_hash_key", (RepositoryCall) t -> t.refreshTokenRepository.findByTokenHash(new byte[32])),
+                Arguments.of("refresh_tokens_family_live_idx", (RepositoryCall) t -> t.refreshTokenRepository.revokeFamily(ID)),
+                Arguments.of("refresh_tokens_user_live_idx", (RepositoryCall) t -> t.refreshTokenRepository.revokeAllByUser(ID)),
+                Arguments.of("chat_user_created_idx", (RepositoryCall) t -> t.chatRepository.findPage(ID, Limit.of(20))),
+                Arguments.of("chat_user_created_idx", (RepositoryCall) t -> t.chatRepository.findPageAfter(ID, Instant.EPOCH, ID, Limit.of(20))),
+                Arguments.of("message_chat_send_date_idx", (RepositoryCall) t -> {
+                    try (Stream<MessageDTO> messages = t.messageRepository.streamLatest(ID, Limit.of(50))) {
+                        messages.count();
+                    }
+                }),
+                Arguments.of("message_chat_send_date_idx", (RepositoryCall) t -> {
+                    try (Stream<MessageDTO> messages = t.messageRepository.streamBefore(ID, Instant.EPOCH, ID, Limit.of(50))) {
+                        messages.count();
+                    }
+                }),
+                Arguments.of("login_attempt_key_minute_idx", (RepositoryCall) t -> t.loginAttemptRepository.sumFailures("u:tester", 0)),
+                Arguments.of("login_attempt_minute_idx", (RepositoryCall) t -> t.loginAttemptRepository.deleteUpTo(0))
+        );
+    }
+
+    /**
+     * Tests that each query of the auth, chat and message paths uses the index designed for it.
+     */
+    @ParameterizedTest
+    @DisplayName("Hot repository queries use their index")
+    @MethodSource("queries")
+    void testIndexScan(String index, RepositoryCall call) {
+        SqlRecorder.STATEMENTS.clear();
+        call.run(this);
+        assertFalse(SqlRecorder.STATEMENTS.isEmpty(), "no statement recorded");
+        String sql = SqlRecorder.STATEMENTS.get(SqlRecorder.STATEMENTS.size() - 1);
+
+        List<String> plan = jdbcTemplate.queryForList("explain (generic_plan) " + numberParameters(sql), String.class);
+
+        assertTrue(plan.stream().anyMatch(line -> line.contains(index)),
+                () -> sql + "\n" + String.join("\n", plan));
+    }
+
+    /**
+     * Replaces the JDBC placeholders with the numbered ones a generic plan needs ($1, $2, ...).
+     */
+    private static String numberParameters(String sql) {
+        Matcher matcher = PARAMETER.matcher(sql);
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        while (matcher.find()) matcher.appendReplacement(numbered, "\\$" + ++parameter);
+        matcher.appendTail(numbered);
+        return numbered.toString();
+    }
+
+    @FunctionalInterface
+    interface RepositoryCall {
+        void run(QueryPlanTests test);
+    }
+
+    /**
+     * Records the SQL Hibernate sends, registered as statement inspector of the test session factory.
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
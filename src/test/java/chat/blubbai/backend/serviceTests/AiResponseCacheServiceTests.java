@@ -0,0 +1,89 @@
+package chat.blubbai.backend.serviceTests;
+
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.enums.Sender;
+import chat.blubbai.backend.service.AiResponseCacheService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiResponseCacheServiceTests {
+
+    private static AiResponseCacheService cache(long maxBytes) {
+        return new AiResponseCacheService("memory", null, maxBytes, Duration.ofHours(1));
+    }
+
+    private static MessageDTO message(Sender author, String content) {
+        return new MessageDTO(UUID.randomUUID(), content, author, Instant.now());
+    }
+
+    /**
+     * Tests that the key ignores whitespace differences and message ids, but not content, author or model.
+     */
+    @Test
+    @DisplayName("Key is built from the normalised context window and the model")
+    void testKey() {
+        AiResponseCacheService cache = cache(1 << 20);
+        String key = cache.key("echo", 20, List.of(message(Sender.USER, "Summarise this")));
+
+        assertEquals(key, cache.key("echo", 20, List.of(message(Sender.USER, "  Summarise \n this "))));
+        assertNotEquals(key, cache.key("echo", 20, List.of(message(Sender.USER, "summarise this"))));
+        assertNotEquals(key, cache.key("echo", 20, List.of(message(Sender.AI, "Summarise this"))));
+        assertNotEquals(key, cache.key("stub:50", 20, List.of(message(Sender.USER, "Summarise this"))));
+        assertNotEquals(key, cache.key("echo", 10, List.of(message(Sender.USER, "Summarise this"))));
+        assertNotEquals(cache.key("echo", 20, List.of(message(Sender.USER, "ab"), message(Sender.USER, "c"))),
+                cache.key("echo", 20, List.of(message(Sender.USER, "a"), message(Sender.USER, "bc"))));
+    }
+
+    /**
+     * Tests that stored replies are returned and counted as hits.
+     */
+    @Test
+    @DisplayName("Stored reply is returned and the hit ratio is tracked")
+    void testGetAndPut() {
+        AiResponseCacheService cache = cache(1 << 20);
+        String key = cache.key("echo", 20, List.of(message(Sender.USER, "Hello")));
+
+        assertNull(cache.get(key));
+        cache.put(key, "Echo: Hello");
+        assertEquals("Echo: Hello", cache.get(key));
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    /**
+     * Tests that the memory tier is bounded by the size of the replies, not their number.
+     */
+    @Test
+    @DisplayName("Memory tier evicts by size")
+    void testPut_sizeBound() {
+        AiResponseCacheService cache = cache(10_000);
+        for (int i = 0; i < 10; i++) {
+            cache.put(cache.key("echo", 20, List.of(message(Sender.USER, "prompt " + i))), "x".repeat(1_000));
+        }
+        cache.getCache().cleanUp();
+
+        assertTrue(cache.getCache().policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 10_000);
+        assertTrue(cache.getCache().estimatedSize() < 10);
+    }
+
+    /**
+     * Tests that a disabled cache neither stores nor returns replies.
+     */
+    @Test
+    @DisplayName("Disabled cache stores nothing")
+    void testDisabled() {
+        AiResponseCacheService cache = new AiResponseCacheService("none", null, 1 << 20, Duration.ofHours(1));
+        String key = cache.key("echo", 20, List.of(message(Sender.USER, "Hello")));
+
+        cache.put(key, "Echo: Hello");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get(key));
+    }
+}
@@ -0,0 +1,105 @@
+package chat.blubbai.backend.serviceTests;
+
+import chat.blubbai.backend.model.ChatDTO;
+import chat.blubbai.backend.model.CursorPageDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.service.ChatService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ChatService.class)
+public class ChatServiceTests {
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private UUID uId;
+
+    @BeforeEach
+    void createUser() {
+        User user = new User();
+        user.setUsername("tester");
+        user.setEmail("tester@blubbai.chat");
+        user.setPassword("hash");
+        entityManager.persist(user);
+        uId = user.getUUID();
+    }
+
+    /**
+     * Tests that following the cursors returns every chat exactly once, newest first.
+     */
+    @Test
+    @DisplayName("Keyset pages cover all chats in order")
+    void testGetChats_keyset() {
+        for (int i = 0; i < 5; i++) chatService.createChat(uId, "Chat " + i, null);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ChatDTO> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<ChatDTO> page = chatService.getChats(uId, cursor, 2);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, all.size());
+        assertEquals(5, new HashSet<>(all.stream().map(ChatDTO::getCId).toList()).size());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getCreated().isAfter(all.get(i - 1).getCreated()));
+        }
+    }
+
+    /**
+     * Tests that chats of another user can neither be renamed nor deleted.
+     */
+    @Test
+    @DisplayName("Chats are only changed by their owner")
+    void testRenameAndDelete_owner() {
+        ChatDTO chat = chatService.createChat(uId, "Chat", null);
+        UUID stranger = UUID.randomUUID();
+
+        assertNull(chatService.renameChat(stranger, chat.getCId(), "Other", null));
+        assertEquals("Renamed", chatService.renameChat(uId, chat.getCId(), "Renamed", null).getTitle());
+        assertFalse(chatService.deleteChat(stranger, chat.getCId()));
+        assertTrue(chatService.deleteChat(uId, chat.getCId()));
+        assertTrue(chatService.getChats(uId, null, 10).getItems().isEmpty());
+    }
+
+    /**
+     * Tests that a chat can opt out of the AI response cache without changing its title.
+     */
+    @Test
+    @DisplayName("Response cache is opt-out per chat")
+    void testUpdateChat_responseCache() {
+        ChatDTO chat = chatService.createChat(uId, "Chat", "Description");
+        assertTrue(chat.getResponseCache());
+        assertTrue(chatService.isResponseCacheEnabled(uId, chat.getCId()));
+
+        ChatDTO updated = chatService.updateChat(uId, chat.getCId(), null, null, false);
+        entityManager.flush();
+
+        assertEquals("Chat", updated.getTitle());
+        assertEquals("Description", updated.getDescription());
+        assertFalse(chatService.isResponseCacheEnabled(uId, chat.getCId()));
+        assertFalse(chatService.isResponseCacheEnabled(UUID.randomUUID(), chat.getCId()));
+    }
+}
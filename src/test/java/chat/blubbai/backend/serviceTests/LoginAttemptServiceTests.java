@@ -0,0 +1,92 @@
+package chat.blubbai.backend.serviceTests;
+
+import chat.blubbai.backend.service.LoginAttemptService;
+import chat.blubbai.backend.utils.InMemoryLoginAttemptStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginAttemptServiceTests {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static LoginAttemptService service() {
+        return new LoginAttemptService(new InMemoryLoginAttemptStore(16, 1000),
+                new LoginAttemptService.Settings(15, 3, 10, Duration.ofSeconds(1), Duration.ofMinutes(1)));
+    }
+
+    /**
+     * Tests that the free attempts pass and the wait doubles with every further failure.
+     */
+    @Test
+    @DisplayName("Failed logins beyond the free attempts are delayed exponentially")
+    void testBackoff() {
+        LoginAttemptService service = service();
+        for (int i = 0; i < 2; i++) service.loginFailed("Tester", "10.0.0.1", NOW);
+        assertEquals(0, service.getRetryAfterMillis("tester", "10.0.0.1", NOW));
+
+        service.loginFailed("tester", "10.0.0.1", NOW);
+        assertEquals(1000, service.getRetryAfterMillis("tester", "10.0.0.2", NOW));
+        service.loginFailed("tester", "10.0.0.1", NOW);
+        assertEquals(2000, service.getRetryAfterMillis("tester", "10.0.0.2", NOW));
+        assertEquals(0, service.getRetryAfterMillis("other", "10.0.0.2", NOW));
+    }
+
+    /**
+     * Tests that failures leave the window and that a successful login resets the username but not the IP.
+     */
+    @Test
+    @DisplayName("Failures expire with the window, a successful login only resets the username")
+    void testWindowAndReset() {
+        LoginAttemptService service = service();
+        for (int i = 0; i < 10; i++) service.loginFailed("user" + i, "10.0.0.1", NOW);
+        assertTrue(service.getRetryAfterMillis("new", "10.0.0.1", NOW) > 0); // IP limit
+
+        for (int i = 0; i < 3; i++) service.loginFailed("tester", "10.0.0.2", NOW);
+        service.loginSucceeded("tester", "10.0.0.2", NOW);
+        assertEquals(0, service.getRetryAfterMillis("tester", "10.0.0.3", NOW));
+
+        long later = NOW + Duration.ofMinutes(16).toMillis();
+        assertEquals(0, service.getRetryAfterMillis("new", "10.0.0.1", later));
+
+        service.loginSucceeded("user0", "10.0.0.1", NOW); // an own account does not clear the IP
+        assertTrue(service.getRetryAfterMillis("new", "10.0.0.1", NOW) > 0);
+    }
+
+    /**
+     * Tests that allowed attempts count before the password is checked and that a success only takes back its own attempt.
+     */
+    @Test
+    @DisplayName("Attempts are counted before the password check")
+    void testTryAttempt() {
+        LoginAttemptService service = service();
+        for (int i = 0; i < 3; i++) assertEquals(0, service.tryAttempt("tester", "10.0.0.1", NOW)); // parallel burst
+        assertTrue(service.tryAttempt("tester", "10.0.0.1", NOW) > 0);
+
+        service.loginSucceeded("tester", "10.0.0.1", NOW);
+        assertEquals(0, service.getRetryAfterMillis("tester", "10.0.0.2", NOW));
+
+        for (int i = 0; i < 8; i++) service.loginFailed("user" + i, "10.0.0.1", NOW);
+        assertTrue(service.getRetryAfterMillis("new", "10.0.0.1", NOW) > 0); // 2 open attempts + 8 failures
+
+        service.attemptAborted("tester", "10.0.0.1", NOW);
+        assertEquals(0, service.getRetryAfterMillis("new", "10.0.0.1", NOW));
+    }
+
+    /**
+     * Tests that usernames too long for the key columns are still counted separately.
+     */
+    @Test
+    @DisplayName("Long usernames are counted by their digest")
+    void testLongUsername() {
+        LoginAttemptService service = service();
+        String name = "x".repeat(300);
+        for (int i = 0; i < 3; i++) service.loginFailed(name + "a", "10.0.0.1", NOW);
+
+        assertTrue(service.getRetryAfterMillis(name + "A", "10.0.0.2", NOW) > 0);
+        assertEquals(0, service.getRetryAfterMillis(name + "b", "10.0.0.2", NOW));
+    }
+}
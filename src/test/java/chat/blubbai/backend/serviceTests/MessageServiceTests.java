@@ -0,0 +1,112 @@
+package chat.blubbai.backend.serviceTests;
+
+import chat.blubbai.backend.model.Chat;
+import chat.blubbai.backend.model.CursorPageDTO;
+import chat.blubbai.backend.model.Message;
+import chat.blubbai.backend.model.MessageDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.model.enums.Sender;
+import chat.blubbai.backend.service.MessageService;
+import chat.blubbai.backend.service.MessageService.Direction;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(MessageService.class)
+public class MessageServiceTests {
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private UUID uId;
+    private UUID cId;
+
+    @BeforeEach
+    void createChat() {
+        User user = new User();
+        user.setUsername("tester");
+        user.setEmail("tester@blubbai.chat");
+        user.setPassword("hash");
+        entityManager.persist(user);
+        Chat chat = new Chat();
+        chat.setTitle("History");
+        chat.setUser(user);
+        entityManager.persist(chat);
+        for (int i = 0; i < 7; i++) {
+            Message message = new Message();
+            message.setContent("Message " + i);
+            message.setAuthor(Sender.USER);
+            message.setChat(chat);
+            entityManager.persist(message);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        uId = user.getUUID();
+        cId = chat.getCId();
+    }
+
+    private static List<String> contents(CursorPageDTO<MessageDTO> page) {
+        return page.getItems().stream().map(MessageDTO::getContent).toList();
+    }
+
+    /**
+     * Tests that the history is paged backwards from the newest messages and forwards again, in chronological order.
+     */
+    @Test
+    @DisplayName("History pages backwards and forwards by cursor")
+    void testGetMessages_bothDirections() {
+        CursorPageDTO<MessageDTO> latest = messageService.getMessages(uId, cId, null, Direction.BEFORE, 3);
+        assertEquals(List.of("Message 4", "Message 5", "Message 6"), contents(latest));
+        assertNotNull(latest.getPreviousCursor());
+
+        CursorPageDTO<MessageDTO> older = messageService.getMessages(uId, cId, latest.getPreviousCursor(), Direction.BEFORE, 3);
+        assertEquals(List.of("Message 1", "Message 2", "Message 3"), contents(older));
+
+        CursorPageDTO<MessageDTO> oldest = messageService.getMessages(uId, cId, older.getPreviousCursor(), Direction.BEFORE, 3);
+        assertEquals(List.of("Message 0"), contents(oldest));
+        assertNull(oldest.getPreviousCursor());
+
+        CursorPageDTO<MessageDTO> newer = messageService.getMessages(uId, cId, oldest.getNextCursor(), Direction.AFTER, 2);
+        assertEquals(List.of("Message 1", "Message 2"), contents(newer));
+        assertNotNull(newer.getPreviousCursor());
+    }
+
+    /**
+     * Tests that the history of a chat of another user is not returned.
+     */
+    @Test
+    @DisplayName("History is only returned to the owner")
+    void testGetMessages_owner() {
+        assertNull(messageService.getMessages(UUID.randomUUID(), cId, null, Direction.BEFORE, 10));
+    }
+
+    /**
+     * Tests that a streamed reply is stored empty, its content replaced and returned as newest message.
+     */
+    @Test
+    @DisplayName("Stored reply is updated with the generated content")
+    void testAddMessage_updateContent() {
+        assertNull(messageService.addMessage(UUID.randomUUID(), cId, Sender.USER, "Hello"));
+
+        MessageDTO reply = messageService.addMessage(uId, cId, Sender.AI, "");
+        assertNotNull(reply.getMId());
+        messageService.updateContent(reply.getMId(), "Echo: Hello");
+        entityManager.clear();
+
+        CursorPageDTO<MessageDTO> latest = messageService.getMessages(uId, cId, null, Direction.BEFORE, 1);
+        assertEquals(List.of("Echo: Hello"), contents(latest));
+        assertEquals(Sender.AI, latest.getItems().get(0).getAuthor());
+    }
+}
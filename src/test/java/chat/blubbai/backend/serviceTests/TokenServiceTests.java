@@ -0,0 +1,211 @@
+package chat.blubbai.backend.serviceTests;
+
+import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.RefreshToken;
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.model.TokenValidationDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.EcKeyRing;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import chat.blubbai.backend.utils.TokenDenylist;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTests {
+
+    private static final String SECRET_1 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String SECRET_2 = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+    private static TokenService tokenService(Map<String, String> secrets, String activeKid) {
+        return tokenService(secrets, activeKid, new EcKeyRing(false, Duration.ofDays(1), Duration.ofHours(1)));
+    }
+
+    private static TokenService tokenService(Map<String, String> secrets, String activeKid, EcKeyRing ecKeyRing) {
+        JwtKeyRing keyRing = new JwtKeyRing(secrets, activeKid);
+        return new TokenService(keyRing, ecKeyRing, new FastTokenVerifier(keyRing), new VerifiedTokenCache(), null, new TokenDenylist(), Runnable::run);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setUsername("tester");
+        user.setUUID(UUID.randomUUID());
+        return user;
+    }
+
+    /**
+     * Tests that an access token is verified and its claims are read.
+     */
+    @Test
+    @DisplayName("Generated access token is parsed into its claims")
+    void testParseToken_access() {
+        TokenService service = tokenService(Map.of("k1", SECRET_1), "k1");
+        User user = user();
+
+        TokenClaims claims = service.parseToken(service.generateAccessToken(user, true));
+
+        assertNotNull(claims);
+        assertTrue(claims.isAccessToken());
+        assertEquals("tester", claims.subject());
+        assertEquals(user.getUUID(), claims.uId());
+        assertEquals(Boolean.TRUE, claims.twoFactorCompleted());
+    }
+
+    /**
+     * Tests that refresh tokens are unique and only refresh tokens are accepted for renewal.
+     */
+    @Test
+    @DisplayName("Refresh token carries a jti and is verified for renewal")
+    void testVerifyRefreshToken() {
+        TokenService service = tokenService(Map.of("k1", SECRET_1), "k1");
+        User user = user();
+
+        RefreshToken first = service.generateRefreshToken(user);
+        RefreshToken second = service.generateRefreshToken(user);
+
+        assertNotEquals(first.getToken(), second.getToken());
+        assertTrue(service.verifyRefreshToken(first.getToken()));
+        assertFalse(service.verifyRefreshToken(service.generateAccessToken(user, true).getToken()));
+    }
+
+    /**
+     * Tests that a batch returns one verdict per token in request order.
+     */
+    @Test
+    @DisplayName("Batch validation returns a verdict and claims per token")
+    void testValidateTokens() {
+        TokenService service = tokenService(Map.of("k1", SECRET_1), "k1");
+        User user = user();
+        AccessTokenDTO valid = service.generateAccessToken(user, true);
+        service.parseToken(valid); // cached
+
+        List<TokenValidationDTO> validations = service.validateTokens(List.of(
+                valid, new AccessTokenDTO("invalid"), service.generateAccessToken(user(), false)));
+
+        assertEquals(3, validations.size());
+        assertTrue(validations.get(0).isValid());
+        assertEquals(user.getUUID(), validations.get(0).getClaims().uId());
+        assertFalse(validations.get(1).isValid());
+        assertNull(validations.get(1).getClaims());
+        assertTrue(validations.get(2).isValid());
+    }
+
+    /**
+     * Tests that tokens of the previous key stay valid after a new key was activated
+     * and that they are rejected once the previous key is retired.
+     */
+    @Test
+    @DisplayName("Key rotation keeps live tokens valid until the key is retired")
+    void testParseToken_rotation() {
+        AccessTokenDTO oldToken = tokenService(Map.of("k1", SECRET_1), "k1").generateAccessToken(user(), true);
+
+        TokenService rotated = tokenService(Map.of("k1", SECRET_1, "k2", SECRET_2), "k2");
+        assertNotNull(rotated.parseToken(oldToken));
+        assertNotNull(rotated.parseToken(rotated.generateAccessToken(user(), true)));
+
+        TokenService retired = tokenService(Map.of("k2", SECRET_2), "k2");
+        assertNull(retired.parseToken(oldToken));
+    }
+
+    /**
+     * Tests that a token signed with an unknown secret under a known key id is rejected.
+     */
+    @Test
+    @DisplayName("Token with a forged signature is rejected")
+    void testParseToken_forged() {
+        AccessTokenDTO forged = tokenService(Map.of("k1", SECRET_2), "k1").generateAccessToken(user(), true);
+
+        assertNull(tokenService(Map.of("k1", SECRET_1), "k1").parseToken(forged));
+    }
+
+    /**
+     * Tests that access tokens are signed with ES256 if enabled and that the key is published in the JWKS.
+     */
+    @Test
+    @DisplayName("ES256 access token is verified and its key is published")
+    @SuppressWarnings("unchecked")
+    void testParseToken_es256() {
+        EcKeyRing ecKeyRing = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1));
+        TokenService service = tokenService(Map.of("k1", SECRET_1), "k1", ecKeyRing);
+        AccessTokenDTO token = service.generateAccessToken(user(), true);
+
+        String kid = ecKeyRing.getSigningKey().kid();
+        String header = new String(Base64.getUrlDecoder().decode(token.getToken().substring(0, token.getToken().indexOf('.'))));
+        TokenClaims claims = service.parseToken(token);
+        List<Map<String, String>> keys = (List<Map<String, String>>) service.getJwks().get("keys");
+
+        assertTrue(header.contains("\"ES256\"") && header.contains(kid));
+        assertNotNull(claims);
+        assertTrue(claims.isAccessToken());
+        assertTrue(keys.stream().anyMatch(key -> kid.equals(key.get("kid")) && "ES256".equals(key.get("alg"))));
+    }
+
+    /**
+     * Tests that the next key is published before it signs and a retired key stays published for the overlap.
+     */
+    @Test
+    @DisplayName("EC keys rotate with overlapping validity windows")
+    void testEcKeyRing_rotation() {
+        EcKeyRing ecKeyRing = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1));
+        EcKeyRing.EcKey current = ecKeyRing.getSigningKey();
+        assertEquals(2, ecKeyRing.getJwks().get("keys").size()); // current and next
+
+        Instant afterRotation = current.activeUntil().plusSeconds(60);
+        assertTrue(ecKeyRing.rotate(afterRotation));
+        assertNotNull(ecKeyRing.getKey(current.kid())); // retired, still published
+        assertEquals(3, ecKeyRing.getJwks().get("keys").size());
+
+        ecKeyRing.rotate(current.activeUntil().plus(Duration.ofHours(1)));
+        assertNull(ecKeyRing.getKey(current.kid()));
+    }
+
+    /**
+     * Tests that instances sharing a keys file sign with the same key and verify each other's tokens.
+     */
+    @Test
+    @DisplayName("EC keys are shared through the keys file")
+    void testEcKeyRing_sharedKeysFile(@TempDir Path directory) {
+        Path keysFile = directory.resolve("ec-keys.properties");
+        EcKeyRing first = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1), keysFile);
+        EcKeyRing second = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1), keysFile);
+        assertEquals(first.getSigningKey().kid(), second.getSigningKey().kid());
+
+        AccessTokenDTO token = tokenService(Map.of("k1", SECRET_1), "k1", first).generateAccessToken(user(), true);
+        assertNotNull(tokenService(Map.of("k1", SECRET_1), "k1", second).parseToken(token));
+
+        EcKeyRing restarted = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1), keysFile);
+        assertEquals(first.getSigningKey().kid(), restarted.getSigningKey().kid());
+    }
+
+    /**
+     * Tests that a key written by an instance with a clock ahead is used within the tolerated skew
+     * and that a missing signing key fails instead of recursing.
+     */
+    @Test
+    @DisplayName("EC signing key tolerates clock skew between instances")
+    void testEcKeyRing_clockSkew(@TempDir Path directory) {
+        Path keysFile = directory.resolve("ec-keys.properties");
+        EcKeyRing ahead = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1), keysFile);
+        Instant aheadNow = ahead.getSigningKey().activeUntil().plus(Duration.ofHours(2)); // all keys retired
+        ahead.rotate(aheadNow);
+        String kid = ahead.getSigningKey(aheadNow).kid();
+
+        EcKeyRing behind = new EcKeyRing(true, Duration.ofDays(1), Duration.ofHours(1), keysFile);
+        behind.rotate(aheadNow.minusSeconds(10)); // adopts the keys written by the instance ahead
+        assertEquals(kid, behind.getSigningKey(aheadNow.minusSeconds(10)).kid());
+        assertThrows(IllegalStateException.class, () -> behind.getSigningKey(aheadNow.minus(Duration.ofMinutes(10))));
+    }
+}
@@ -0,0 +1,99 @@
+package chat.blubbai.backend.utilsTests;
+
+import chat.blubbai.backend.model.TokenClaims;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastTokenVerifierTests {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final JwtKeyRing keyRing = new JwtKeyRing(Map.of("k1", SECRET), "k1");
+    private final FastTokenVerifier verifier = new FastTokenVerifier(keyRing);
+
+    private JwtBuilder accessToken(UUID uId, long expiresInMillis) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, "k1")
+                .setSubject("tester")
+                .claim("tokenType", "access")
+                .claim("uId", uId)
+                .claim("secretMethod", null)
+                .claim("2fa_completed", true)
+                .claim("mail_verified", false)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expiresInMillis));
+    }
+
+    private String sign(JwtBuilder builder) {
+        return builder.signWith(keyRing.getKey("k1"), SignatureAlgorithm.HS512).compact();
+    }
+
+    /**
+     * Tests that the fast path decodes all claims of a valid access token.
+     */
+    @Test
+    @DisplayName("Valid access token is verified by the fast path")
+    void testVerify_valid() {
+        UUID uId = UUID.randomUUID();
+
+        TokenClaims claims = verifier.verify(sign(accessToken(uId, 600000)));
+
+        assertNotNull(claims);
+        assertNotSame(FastTokenVerifier.UNSUPPORTED, claims);
+        assertEquals("tester", claims.subject());
+        assertEquals(uId, claims.uId());
+        assertEquals("access", claims.tokenType());
+        assertNull(claims.secretMethod());
+        assertEquals(Boolean.TRUE, claims.twoFactorCompleted());
+        assertEquals(Boolean.FALSE, claims.mailVerified());
+        assertNotNull(claims.issuedAt());
+    }
+
+    /**
+     * Tests that a token with a modified payload is rejected.
+     */
+    @Test
+    @DisplayName("Token with a modified payload is rejected")
+    void testVerify_tampered() {
+        String token = sign(accessToken(UUID.randomUUID(), 600000));
+        String other = sign(accessToken(UUID.randomUUID(), 600000));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + other.split("\\.")[1] + "." + parts[2];
+
+        assertNull(verifier.verify(tampered));
+    }
+
+    /**
+     * Tests that an expired token is rejected.
+     */
+    @Test
+    @DisplayName("Expired token is rejected")
+    void testVerify_expired() {
+        assertNull(verifier.verify(sign(accessToken(UUID.randomUUID(), -1000))));
+    }
+
+    /**
+     * Tests that tokens with unknown claims are handed over to jjwt.
+     */
+    @Test
+    @DisplayName("Token with unknown claims falls back to jjwt")
+    void testVerify_unsupported() {
+        String token = sign(accessToken(UUID.randomUUID(), 600000).claim("role", 1));
+
+        assertSame(FastTokenVerifier.UNSUPPORTED, verifier.verify(token));
+        assertSame(FastTokenVerifier.UNSUPPORTED, verifier.verify("not-a-token"));
+    }
+}
@@ -0,0 +1,43 @@
+package chat.blubbai.backend.utilsTests;
+
+import chat.blubbai.backend.utils.PasswordEncoder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordEncoderTests {
+
+    /**
+     * Tests that the calibration never goes below the minimum cost and never above the maximum cost.
+     */
+    @Test
+    @DisplayName("BCrypt cost calibration stays within its bounds")
+    void testCalibrateBCryptCost() {
+        assertEquals(PasswordEncoder.MIN_BCRYPT_COST, PasswordEncoder.calibrateBCryptCost(Duration.ZERO));
+        assertEquals(PasswordEncoder.MAX_BCRYPT_COST, PasswordEncoder.calibrateBCryptCost(Duration.ofDays(1)));
+    }
+
+    /**
+     * Tests that hashes stored without algorithm prefix are still accepted and marked for rehashing,
+     * while new hashes carry the prefix and meet the policy.
+     */
+    @Test
+    @DisplayName("Legacy BCrypt hashes match and are upgraded")
+    void testLegacyHash() {
+        org.springframework.security.crypto.password.PasswordEncoder encoder = new PasswordEncoder().getPasswordEncoder();
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("wrong", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        String current = encoder.encode("secret");
+        assertTrue(current.startsWith("{bcrypt}"));
+        assertTrue(encoder.matches("secret", current));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+}
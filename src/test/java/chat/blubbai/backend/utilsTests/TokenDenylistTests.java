@@ -0,0 +1,99 @@
+package chat.blubbai.backend.utilsTests;
+
+import chat.blubbai.backend.model.AccessTokenDTO;
+import chat.blubbai.backend.model.User;
+import chat.blubbai.backend.service.TokenService;
+import chat.blubbai.backend.utils.EcKeyRing;
+import chat.blubbai.backend.utils.FastTokenVerifier;
+import chat.blubbai.backend.utils.JwtKeyRing;
+import chat.blubbai.backend.utils.TokenDenylist;
+import chat.blubbai.backend.utils.VerifiedTokenCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenDenylistTests {
+
+    /**
+     * Tests that tokens issued up to the cutoff are denied and later ones are accepted.
+     */
+    @Test
+    @DisplayName("Tokens issued before the revocation are denied")
+    void testIsDenied() {
+        TokenDenylist denylist = new TokenDenylist(Duration.ofMinutes(10));
+        UUID uId = UUID.randomUUID();
+        Instant cutoff = Instant.now();
+
+        denylist.revoke(uId, cutoff);
+
+        assertTrue(denylist.isDenied(uId, cutoff.minusSeconds(60)));
+        assertTrue(denylist.isDenied(uId, cutoff));
+        assertFalse(denylist.isDenied(uId, cutoff.plusSeconds(1)));
+        assertFalse(denylist.isDenied(UUID.randomUUID(), cutoff));
+    }
+
+    /**
+     * Tests that an entry is removed once every token it denies has expired, and not before.
+     */
+    @Test
+    @DisplayName("Entries expire after the token lifetime")
+    void testExpire() {
+        TokenDenylist denylist = new TokenDenylist(Duration.ofMinutes(10));
+        UUID uId = UUID.randomUUID();
+        Instant cutoff = Instant.now();
+        denylist.revoke(uId, cutoff);
+
+        denylist.expire(cutoff.plus(Duration.ofMinutes(9)));
+        assertTrue(denylist.isDenied(uId, cutoff));
+
+        denylist.expire(cutoff.plus(Duration.ofMinutes(10)).plusSeconds(10));
+        assertFalse(denylist.isDenied(uId, cutoff));
+        assertEquals(0, denylist.size());
+    }
+
+    /**
+     * Tests that a token issued in the same second as the revocation, but after it, is accepted.
+     */
+    @Test
+    @DisplayName("Re-login in the same second as the revocation is accepted")
+    void testIsDenied_sameSecond() {
+        TokenDenylist denylist = new TokenDenylist(Duration.ofMinutes(10));
+        UUID uId = UUID.randomUUID();
+        Instant cutoff = Instant.ofEpochSecond(Instant.now().getEpochSecond()).plusMillis(200);
+
+        denylist.revoke(uId, cutoff);
+
+        assertTrue(denylist.isDenied(uId, cutoff.minusMillis(100)));
+        assertFalse(denylist.isDenied(uId, cutoff.plusMillis(1)));
+    }
+
+    /**
+     * Tests that a token issued right after a revocation passes the TokenService, while the revoked one does not.
+     */
+    @Test
+    @DisplayName("Access token issued right after the revocation is accepted")
+    void testIsDenied_reLogin() {
+        JwtKeyRing keyRing = new JwtKeyRing(Map.of("k1", "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"), "k1");
+        TokenDenylist denylist = new TokenDenylist(Duration.ofMinutes(10));
+        TokenService tokenService = new TokenService(keyRing, new EcKeyRing(false, Duration.ofDays(1), Duration.ofHours(1)),
+                new FastTokenVerifier(keyRing), new VerifiedTokenCache(), null, denylist, Runnable::run);
+        User user = new User();
+        user.setUsername("tester");
+        user.setUUID(UUID.randomUUID());
+
+        AccessTokenDTO revoked = tokenService.generateAccessToken(user, true);
+        Instant cutoff = Instant.now();
+        denylist.revoke(user.getUUID(), cutoff);
+        while (System.currentTimeMillis() <= cutoff.toEpochMilli()) Thread.onSpinWait(); // the next login is at least 1 ms later
+        AccessTokenDTO reLogin = tokenService.generateAccessToken(user, true);
+
+        assertNull(tokenService.parseToken(revoked));
+        assertNotNull(tokenService.parseToken(reLogin));
+    }
+}
@@ -0,0 +1,43 @@
+package chat.blubbai.backend.utilsTests;
+
+import chat.blubbai.backend.utils.UuidV7;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidV7Tests {
+
+    /**
+     * Tests the version, variant and embedded time of a generated UUID.
+     */
+    @Test
+    @DisplayName("Generated UUID is version 7 and carries the current time")
+    void testLayout() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.generate();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before);
+        assertTrue(millis - System.currentTimeMillis() < 1000); // ahead only after bursts of more than 2048 keys per ms
+    }
+
+    /**
+     * Tests that consecutive UUIDs are strictly increasing, also within one millisecond.
+     * Compared as unsigned bytes, as Postgres orders uuid values.
+     */
+    @Test
+    @DisplayName("UUIDs are strictly increasing")
+    void testMonotonic() {
+        UUID previous = UuidV7.generate();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7.generate();
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = next;
+        }
+    }
+}